@@ -0,0 +1,100 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import model.SenhaHash;
+import model.Usuario;
+import repository.UsuarioRepository;
+
+/**
+ * Mede a latência de login sob carga concorrente com o custo PBKDF2 escolhido.
+ * <p>
+ * Uso: {@code BenchmarkAutenticacao [iterações] [usuários] [logins] [clientes]}.
+ * Cada cliente é um thread que faz logins em sequência por
+ * {@link UsuarioRepository#autenticarAsync}, esperando cada resposta (como um usuário
+ * esperando a tela); a latência inclui a espera na fila de verificação. Um em cada
+ * dez logins usa a senha errada. Imprime p50/p90/p99/máximo e a vazão.
+ * </p>
+ */
+public class BenchmarkAutenticacao {
+
+    public static void main(String[] args) throws Exception {
+        int iteracoes = args.length > 0 ? Integer.parseInt(args[0]) : SenhaHash.getIteracoes();
+        int usuarios = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int logins = args.length > 2 ? Integer.parseInt(args[2]) : 1_000;
+        int clientes = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+
+        SenhaHash.definirIteracoes(iteracoes);
+        System.out.printf("PBKDF2 com %,d iterações, %d usuários, %d logins, %d clientes, %d núcleos%n",
+                iteracoes, usuarios, logins, clientes, Runtime.getRuntime().availableProcessors());
+
+        try (UsuarioRepository repo = new UsuarioRepository()) {
+            IntStream.range(0, usuarios).parallel()
+                    .forEach(i -> repo.cadastrar(new Usuario("Usuário " + i, email(i), senha(i))));
+
+            // Aquecimento: JIT e threads do pool
+            for (int i = 0; i < Math.min(usuarios, 20); i++) repo.autenticarAsync(email(i), senha(i)).join();
+
+            long[] latencias = new long[logins];
+            AtomicInteger proximo = new AtomicInteger();
+            AtomicInteger recusados = new AtomicInteger();
+            AtomicInteger falhasInesperadas = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(clientes);
+            List<Future<?>> tarefas = new ArrayList<>();
+            long inicio = System.nanoTime();
+            for (int c = 0; c < clientes; c++) {
+                tarefas.add(pool.submit(() -> {
+                    int n;
+                    while ((n = proximo.getAndIncrement()) < logins) {
+                        int u = ThreadLocalRandom.current().nextInt(usuarios);
+                        boolean correta = n % 10 != 0;
+                        long t0 = System.nanoTime();
+                        try {
+                            boolean ok = repo.autenticarAsync(email(u), correta ? senha(u) : "errada").join().isPresent();
+                            if (ok != correta) falhasInesperadas.incrementAndGet();
+                        } catch (CompletionException e) {
+                            recusados.incrementAndGet();
+                        }
+                        latencias[n] = System.nanoTime() - t0;
+                    }
+                }));
+            }
+            for (Future<?> f : tarefas) f.get();
+            long total = System.nanoTime() - inicio;
+            pool.shutdown();
+
+            Arrays.sort(latencias);
+            System.out.printf("p50 %.1f ms | p90 %.1f ms | p99 %.1f ms | máx %.1f ms%n",
+                    ms(percentil(latencias, 50)), ms(percentil(latencias, 90)),
+                    ms(percentil(latencias, 99)), ms(latencias[latencias.length - 1]));
+            System.out.printf("Vazão: %.0f logins/s | recusados (fila cheia): %d | resultados incorretos: %d%n",
+                    logins / (total / 1e9), recusados.get(), falhasInesperadas.get());
+        }
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@bench.local";
+    }
+
+    private static String senha(int i) {
+        return "senha-" + i;
+    }
+
+    private static long percentil(long[] ordenado, int p) {
+        int i = (int) Math.ceil(p / 100.0 * ordenado.length) - 1;
+        return ordenado[Math.max(0, Math.min(i, ordenado.length - 1))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
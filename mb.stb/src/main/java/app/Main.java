@@ -7,17 +7,20 @@ import java.util.Optional;
 import java.util.Scanner;
 import java.util.UUID;
 
+import exception.RegraNegocioException;
 import model.Musica;
 import model.Usuario;
 import persistence.FileStorage;
+import persistence.UsuarioStorage;
 import repository.BibliotecaMusical;
+import repository.ConsultaParser;
 import repository.UsuarioRepository;
 
 public class Main {
 
     private static Scanner in;
-    private static final BibliotecaMusical repo = new BibliotecaMusical(new FileStorage());
-    private static final UsuarioRepository users = new UsuarioRepository();
+    private static final BibliotecaMusical repo = new BibliotecaMusical(new FileStorage(null, true));
+    private static final UsuarioRepository users = new UsuarioRepository(new UsuarioStorage());
     private static Usuario currentUser = null; // sessão atual
 
     // Construtor para testes injetarem Scanner
@@ -38,6 +41,7 @@ public class Main {
         } catch (Exception e) {
             // Em testes, isso é normal, ignorar.
         }
+        users.close();
     }
 
     // ================== AUTENTICAÇÃO ==================
@@ -123,7 +127,7 @@ public class Main {
         System.out.println("2 - Editar música");
         System.out.println("3 - Remover música");
         System.out.println("4 - Listar todas");
-        System.out.println("5 - Buscar (título / artista / gênero)");
+        System.out.println("5 - Buscar (título / artista / gênero / duração)");
         System.out.println("0 - Sair");
     }
 
@@ -217,8 +221,18 @@ public class Main {
         System.out.println("1 - Por título");
         System.out.println("2 - Por artista");
         System.out.println("3 - Por gênero");
+        System.out.println("4 - Por duração (faixa em segundos)");
+        System.out.println("5 - Consulta avançada (ex.: artista:queen genero:rock duracao>300 \"bohemian\")");
 
         int tipo = lerInt("Escolha: ");
+        if (tipo == 4) {
+            buscarPorDuracao();
+            return;
+        }
+        if (tipo == 5) {
+            buscarPorConsulta();
+            return;
+        }
         String termo = lerStr("Digite o termo de busca: ");
 
         String header = "";
@@ -254,6 +268,36 @@ public class Main {
         System.out.println("Total encontrado: " + resultado.size());
     }
 
+    private static void buscarPorConsulta() {
+        String texto = lerStr("Consulta: ");
+        List<Musica> resultado;
+        try {
+            resultado = repo.buscar(ConsultaParser.interpretar(texto));
+        } catch (RegraNegocioException e) {
+            System.out.println("Consulta inválida: " + e.getMessage());
+            return;
+        }
+        imprimirResultado("Consulta avançada", resultado);
+    }
+
+    private static void imprimirResultado(String header, List<Musica> resultado) {
+        if (resultado.isEmpty()) { System.out.println("Nenhum resultado encontrado"); return; }
+
+        System.out.println("--- " + header + " ---");
+        for (Musica m : resultado) {
+            System.out.println("ID: " + m.getId());
+            System.out.println(m);
+            System.out.println("----------------------------");
+        }
+        System.out.println("Total encontrado: " + resultado.size());
+    }
+
+    private static void buscarPorDuracao() {
+        int min = lerInt("Duração mínima (segundos): ");
+        Integer max = lerIntOpcional("Duração máxima (segundos, vazio = sem limite): ");
+        imprimirResultado("Busca por duração", repo.buscarPorDuracao(min, max == null ? Integer.MAX_VALUE : max));
+    }
+
     // ================== UTILITÁRIOS ==================
     private static String lerStr(String label) {
         System.out.print(label);
@@ -6,27 +6,42 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
 import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 
 import app.base.AddMusicaDialog;
 import app.base.EditMusicaDialog;
 import app.base.LoginDialog;
 import app.base.RegisterDialog;
+import exception.RegraNegocioException;
 import model.Musica;
 import model.Usuario;
 import persistence.FileStorage;
+import persistence.UsuarioStorage;
 import repository.BibliotecaMusical;
+import repository.Consulta;
+import repository.ConsultaParser;
+import repository.SessaoRepository;
 import repository.UsuarioRepository;
 
 public class MainView extends JFrame {
 
-    private final BibliotecaMusical repo = new BibliotecaMusical(new FileStorage());
-    private final UsuarioRepository users = new UsuarioRepository();
-    private Usuario currentUser = null;
+    // Gravação em segundo plano: adicionar/editar na EDT não espera pelo disco
+    private final BibliotecaMusical repo =
+            new BibliotecaMusical(new FileStorage(null, true), true, Duration.ofMillis(200));
+    private final UsuarioRepository users = new UsuarioRepository(new UsuarioStorage());
+    private final SessaoRepository sessoes = new SessaoRepository();
+    /** Token da sessão aberta no login; null quando desconectado. */
+    private String tokenSessao = null;
 
     // Componentes da Interface
     private final JLabel statusLabel = new JLabel("Status: Desconectado");
@@ -44,6 +59,21 @@ public class MainView extends JFrame {
     private final JTextField searchField = new JTextField(15);
     private final JButton btnBuscar = new JButton("Buscar");
 
+    // Autocompletar da busca
+    private static final int MAX_SUGESTOES = 8;
+    private final JPopupMenu sugestoesPopup = new JPopupMenu();
+    private final Timer sugestoesTimer = new Timer(150, e -> atualizarSugestoes());
+    private SwingWorker<List<String>, Void> sugestoesWorker;
+    private boolean aplicandoSugestao = false;
+
+    // Painel de facetas (contagens do que está na tabela)
+    private final JComboBox<String> facetaCampo = new JComboBox<>(new String[]{"Gênero", "Artista", "Álbum"});
+    private final DefaultListModel<String> facetasModel = new DefaultListModel<>();
+    private final JList<String> facetasList = new JList<>(facetasModel);
+    private final List<String> facetaValores = new ArrayList<>();
+    private List<Musica> musicasExibidas = List.of();
+    private boolean exibindoCatalogo = false;
+
     public MainView() {
         super("Mini Biblioteca de Músicas - GUI");
         inicializarComponentes();
@@ -51,6 +81,14 @@ public class MainView extends JFrame {
         configurarAcoes();
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                repo.close(); // grava o que ainda estiver na janela antes de sair
+                users.close();
+                sessoes.close();
+            }
+        });
         setSize(1000, 650);
         setLocationRelativeTo(null);
         setVisible(true);
@@ -66,14 +104,21 @@ public class MainView extends JFrame {
         searchField.setName("searchField");
         btnBuscar.setName("btnBuscar");
         btnBenchmark.setName("btnBenchmark");
+        sugestoesPopup.setName("sugestoesPopup");
+        facetaCampo.setName("facetaCampo");
+        facetasList.setName("facetasList");
         // --- Fim dos Nomes ---
 
         statusLabel.setForeground(Color.BLUE);
         statusLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        updateStatus(false);
+        updateStatus(null);
 
         musicaTable.setFillsViewportHeight(true);
         musicaTable.setAutoCreateRowSorter(true);
+
+        // O popup não pode roubar o foco do campo enquanto o usuário digita
+        sugestoesPopup.setFocusable(false);
+        sugestoesTimer.setRepeats(false);
     }
 
     private void configurarLayout() {
@@ -109,6 +154,13 @@ public class MainView extends JFrame {
         contentPanel.add(scrollPane, BorderLayout.CENTER);
         add(contentPanel, BorderLayout.CENTER);
 
+        // 4. Painel de Facetas (Lateral Direita)
+        JPanel facetasPanel = new JPanel(new BorderLayout(5, 5));
+        facetasPanel.setPreferredSize(new Dimension(200, 400));
+        facetasPanel.add(facetaCampo, BorderLayout.NORTH);
+        facetasPanel.add(new JScrollPane(facetasList), BorderLayout.CENTER);
+        add(facetasPanel, BorderLayout.EAST);
+
         // Adiciona o Listener do Menu de Contexto
         musicaTable.addMouseListener(new MusicaPopupListener(musicaTable, this));
     }
@@ -116,7 +168,7 @@ public class MainView extends JFrame {
     private void configurarAcoes() {
         // Ações de Autenticação
         btnLogin.addActionListener(e -> {
-            if (currentUser == null) {
+            if (getCurrentUser() == null) {
                 showLoginDialog();
             } else {
                 performLogout();
@@ -127,24 +179,47 @@ public class MainView extends JFrame {
 
         // Ações CRUD
         btnAdicionarMusica.addActionListener(e -> {
-            if (currentUser != null) {
+            if (getCurrentUser() != null) {
                 showAddMusicaDialog();
             }
         });
 
         btnListarMusicas.addActionListener(e -> listarMusicas());
         btnBuscar.addActionListener(e -> performSearch());
+        searchField.addActionListener(e -> performSearch());
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { agendarSugestoes(); }
+            @Override public void removeUpdate(DocumentEvent e) { agendarSugestoes(); }
+            @Override public void changedUpdate(DocumentEvent e) { agendarSugestoes(); }
+        });
 
         // 🔹 Benchmark
         btnBenchmark.addActionListener(e -> showBenchmarkDialog());
 
+        // Facetas: trocar o campo recalcula; duplo clique filtra pelo valor
+        facetaCampo.addActionListener(e -> atualizarFacetas());
+        facetasList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int i = facetasList.getSelectedIndex();
+                if (e.getClickCount() == 2 && i >= 0) filtrarPorFaceta(facetaValores.get(i));
+            }
+        });
+
         listarMusicas();
     }
 
     // ================== MÉTODOS DE AÇÃO / UTILITÁRIOS ==================
 
+    /** Usuário da sessão atual, ou null se não há sessão ou ela expirou por inatividade. */
     public Usuario getCurrentUser() {
-        return currentUser;
+        if (tokenSessao == null) return null;
+        Optional<Usuario> usuario = sessoes.validar(tokenSessao);
+        if (usuario.isEmpty()) {
+            tokenSessao = null;
+            updateStatus(null);
+        }
+        return usuario.orElse(null);
     }
 
     // ---------------- Autenticação ----------------
@@ -153,8 +228,8 @@ public class MainView extends JFrame {
         dialog.setVisible(true);
 
         dialog.getAuthenticatedUser().ifPresent(user -> {
-            currentUser = user;
-            updateStatus(true);
+            tokenSessao = sessoes.iniciar(user);
+            updateStatus(user);
             listarMusicas();
         });
     }
@@ -165,14 +240,15 @@ public class MainView extends JFrame {
     }
 
     private void performLogout() {
-        currentUser = null;
-        updateStatus(false);
+        sessoes.encerrar(tokenSessao);
+        tokenSessao = null;
+        updateStatus(null);
         JOptionPane.showMessageDialog(this, "Logout realizado com sucesso.", "Sessão Encerrada", JOptionPane.INFORMATION_MESSAGE);
     }
 
-    private void updateStatus(boolean loggedIn) {
-        if (loggedIn && currentUser != null) {
-            statusLabel.setText("Status: Logado como " + currentUser.getNome());
+    private void updateStatus(Usuario usuario) {
+        if (usuario != null) {
+            statusLabel.setText("Status: Logado como " + usuario.getNome());
             statusLabel.setForeground(Color.GREEN.darker());
             btnLogin.setText("Logout");
             btnRegister.setEnabled(false);
@@ -194,7 +270,7 @@ public class MainView extends JFrame {
     }
 
     public void showEditMusicaDialog(UUID id) {
-        if (currentUser == null) {
+        if (getCurrentUser() == null) {
             JOptionPane.showMessageDialog(this, "Ação restrita. Faça login primeiro.", "Acesso Negado", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -216,7 +292,7 @@ public class MainView extends JFrame {
     }
 
     public void removeMusica(UUID id) {
-        if (currentUser == null) {
+        if (getCurrentUser() == null) {
             JOptionPane.showMessageDialog(this, "Ação restrita. Faça login primeiro.", "Acesso Negado", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -246,14 +322,117 @@ public class MainView extends JFrame {
             tableModel.setMusicas(musicas);
             scrollPane.setViewportView(musicaTable);
         }
+        musicasExibidas = musicas == null ? List.of() : musicas;
+        atualizarFacetas();
+        exibindoCatalogo = false;
     }
 
     private void listarMusicas() {
         List<Musica> todasMusicas = repo.listarTodas();
+        exibindoCatalogo = true;
         loadMusicas(todasMusicas);
     }
 
+    // ---------------- Facetas ----------------
+
+    private Consulta.Campo campoDaFaceta() {
+        return switch (facetaCampo.getSelectedIndex()) {
+            case 1 -> Consulta.Campo.ARTISTA;
+            case 2 -> Consulta.Campo.ALBUM;
+            default -> Consulta.Campo.GENERO;
+        };
+    }
+
+    /** Catálogo inteiro usa as contagens mantidas pelo repositório; um resultado de busca é contado na hora. */
+    private void atualizarFacetas() {
+        Consulta.Campo campo = campoDaFaceta();
+        Map<String, Integer> contagens = exibindoCatalogo
+                ? repo.contarPor(campo)
+                : repo.contarPor(campo, musicasExibidas);
+        facetasModel.clear();
+        facetaValores.clear();
+        for (Map.Entry<String, Integer> e : contagens.entrySet()) {
+            facetaValores.add(e.getKey());
+            facetasModel.addElement(e.getKey() + " (" + e.getValue() + ")");
+        }
+    }
+
+    private void filtrarPorFaceta(String valor) {
+        String campo = switch (campoDaFaceta()) {
+            case ARTISTA -> "artista";
+            case ALBUM -> "album";
+            default -> "genero";
+        };
+        searchField.setText(campo + "=" + ConsultaParser.literal(valor));
+        performSearch();
+    }
+
+    // ---------------- Autocompletar ----------------
+
+    /** Reinicia o debounce a cada tecla; a consulta só roda quando a digitação pausa. */
+    private void agendarSugestoes() {
+        if (aplicandoSugestao) return;
+        sugestoesTimer.restart();
+    }
+
+    /** Calcula as sugestões fora da EDT e exibe o popup ao terminar. */
+    private void atualizarSugestoes() {
+        String prefixo = searchField.getText().trim();
+        if (sugestoesWorker != null) sugestoesWorker.cancel(false);
+        if (prefixo.isEmpty()) {
+            sugestoesPopup.setVisible(false);
+            return;
+        }
+
+        SwingWorker<List<String>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<String> doInBackground() {
+                return repo.sugerir(prefixo, MAX_SUGESTOES);
+            }
+
+            @Override
+            protected void done() {
+                // Descarta resultados de um prefixo que o usuário já mudou
+                if (isCancelled() || !prefixo.equals(searchField.getText().trim())) return;
+                try {
+                    mostrarSugestoes(get());
+                } catch (Exception ex) {
+                    sugestoesPopup.setVisible(false);
+                }
+            }
+        };
+        sugestoesWorker = worker;
+        worker.execute();
+    }
+
+    private void mostrarSugestoes(List<String> sugestoes) {
+        sugestoesPopup.setVisible(false);
+        sugestoesPopup.removeAll();
+        if (sugestoes.isEmpty() || !searchField.isShowing()) return;
+
+        for (String sugestao : sugestoes) {
+            JMenuItem item = new JMenuItem(sugestao);
+            item.addActionListener(e -> aplicarSugestao(sugestao));
+            sugestoesPopup.add(item);
+        }
+        sugestoesPopup.show(searchField, 0, searchField.getHeight());
+    }
+
+    private void aplicarSugestao(String sugestao) {
+        aplicandoSugestao = true;
+        try {
+            // A sugestão é um valor do catálogo, não sintaxe: "AC-DC" ou "1-2" não são faixas
+            searchField.setText(ConsultaParser.literal(sugestao));
+        } finally {
+            aplicandoSugestao = false;
+        }
+        sugestoesPopup.setVisible(false);
+        performSearch();
+    }
+
     private void performSearch() {
+        sugestoesTimer.stop();
+        sugestoesPopup.setVisible(false);
         String termo = searchField.getText().trim();
         List<Musica> resultado = List.of();
 
@@ -262,12 +441,12 @@ public class MainView extends JFrame {
             return;
         }
 
-        resultado = repo.buscarPorTitulo(termo);
-        if (resultado.isEmpty()) {
-            resultado = repo.buscarPorArtista(termo);
-        }
-        if (resultado.isEmpty()) {
-            resultado = repo.buscarPorGenero(termo);
+        // Sintaxe de ConsultaParser: artista:queen genero:rock duracao>300 "bohemian"
+        try {
+            resultado = repo.buscar(ConsultaParser.interpretar(termo));
+        } catch (RegraNegocioException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Consulta inválida", JOptionPane.WARNING_MESSAGE);
+            return;
         }
 
         loadMusicas(resultado);
@@ -11,6 +11,8 @@ import java.util.Optional;
  * Diálogo de autenticação do usuário.
  * <p>
  * Realiza login básico validando email e senha através do {@link UsuarioRepository}.
+ * A verificação do hash da senha é lenta de propósito, então roda fora da EDT
+ * ({@link UsuarioRepository#autenticarAsync}); enquanto isso o formulário fica desabilitado.
  * </p>
  */
 public class LoginDialog extends BaseDialog {
@@ -64,9 +66,18 @@ public class LoginDialog extends BaseDialog {
             return;
         }
 
-        Optional<Usuario> optUser = users.autenticar(email, password);
+        setFormularioHabilitado(false);
+        users.autenticarAsync(email, password).whenComplete((optUser, erro) ->
+                SwingUtilities.invokeLater(() -> concluirLogin(optUser, erro)));
+    }
 
-        if (optUser.isPresent()) {
+    /** Volta na EDT com o resultado da verificação. */
+    private void concluirLogin(Optional<Usuario> optUser, Throwable erro) {
+        if (!isDisplayable()) return; // fechado (Cancelar/ESC) durante a verificação
+        setFormularioHabilitado(true);
+        if (erro != null) {
+            showMessage("Não foi possível verificar o login agora. Tente novamente.", "Erro de Login", JOptionPane.WARNING_MESSAGE);
+        } else if (optUser.isPresent()) {
             authenticatedUser = optUser.get();
             dispose();
         } else {
@@ -75,6 +86,13 @@ public class LoginDialog extends BaseDialog {
         }
     }
 
+    private void setFormularioHabilitado(boolean habilitado) {
+        emailField.setEnabled(habilitado);
+        passwordField.setEnabled(habilitado);
+        btnConfirmar.setEnabled(habilitado);
+        setCursor(habilitado ? Cursor.getDefaultCursor() : Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    }
+
     public Optional<Usuario> getAuthenticatedUser() {
         return Optional.ofNullable(authenticatedUser);
     }
@@ -1,9 +1,11 @@
 package app.base;
 
 import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.FlowLayout;
 import java.awt.Frame;
 import java.awt.GridLayout;
+import java.util.concurrent.CompletionException;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -12,11 +14,18 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPasswordField;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import exception.RegraNegocioException;
-import model.Usuario;
 import repository.UsuarioRepository;
 
+/**
+ * Diálogo de cadastro de usuário.
+ * <p>
+ * Gerar o hash da senha custa o mesmo que um login, então o cadastro roda fora da EDT
+ * ({@link UsuarioRepository#cadastrarAsync}); enquanto isso o formulário fica desabilitado.
+ * </p>
+ */
 public class RegisterDialog extends JDialog {
 
     private final UsuarioRepository users;
@@ -97,25 +106,35 @@ public class RegisterDialog extends JDialog {
             return;
         }
 
-        try {
-            if (users.existePorEmail(email)) {
-                JOptionPane.showMessageDialog(this, "Já existe usuário com esse email.", "Erro de Registro", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-
-            Usuario u = new Usuario(nome, email, senha);
-            boolean ok = users.cadastrar(u);
-
-            if (ok) {
-                JOptionPane.showMessageDialog(this, "Usuário registrado com sucesso.", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-                dispose();
-            } else {
-                JOptionPane.showMessageDialog(this, "Não foi possível registrar o usuário.", "Erro Desconhecido", JOptionPane.ERROR_MESSAGE);
-            }
-        } catch (RegraNegocioException ex) {
-            JOptionPane.showMessageDialog(this, "Erro de Negócio: " + ex.getMessage(), "Erro de Negócio", JOptionPane.ERROR_MESSAGE);
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Erro inesperado: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        // Sem checar o email antes: a busca lê o disco, e o cadastro já recusa duplicados fora da EDT
+        setFormularioHabilitado(false);
+        users.cadastrarAsync(nome, email, senha).whenComplete((ok, erro) ->
+                SwingUtilities.invokeLater(() -> concluirRegistro(ok, erro)));
+    }
+
+    /** Volta na EDT com o resultado do cadastro. */
+    private void concluirRegistro(Boolean ok, Throwable erro) {
+        if (!isDisplayable()) return; // fechado (Cancelar) durante o cadastro
+        setFormularioHabilitado(true);
+        Throwable causa = (erro instanceof CompletionException && erro.getCause() != null) ? erro.getCause() : erro;
+        if (causa instanceof RegraNegocioException) {
+            JOptionPane.showMessageDialog(this, "Erro de Negócio: " + causa.getMessage(), "Erro de Negócio", JOptionPane.ERROR_MESSAGE);
+        } else if (causa != null) {
+            JOptionPane.showMessageDialog(this, "Erro inesperado: " + causa.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        } else if (ok) {
+            JOptionPane.showMessageDialog(this, "Usuário registrado com sucesso.", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+            dispose();
+        } else {
+            JOptionPane.showMessageDialog(this, "Já existe usuário com esse email.", "Erro de Registro", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private void setFormularioHabilitado(boolean habilitado) {
+        nomeField.setEnabled(habilitado);
+        emailField.setEnabled(habilitado);
+        passwordField.setEnabled(habilitado);
+        confirmPasswordField.setEnabled(habilitado);
+        btnRegister.setEnabled(habilitado);
+        setCursor(habilitado ? Cursor.getDefaultCursor() : Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    }
 }
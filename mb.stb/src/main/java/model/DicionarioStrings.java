@@ -0,0 +1,69 @@
+package model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool de strings canônicas para campos de baixa cardinalidade (artista, álbum, gênero).
+ * <p>
+ * Um catálogo grande repete poucos artistas, álbuns e gêneros; com o pool, todas as
+ * músicas com o mesmo valor apontam para a mesma instância, o que economiza heap e
+ * faz a maioria das comparações de igualdade terminar no teste de referência.
+ * </p>
+ * <p>
+ * As entradas são fracas: um valor que nenhuma música usa mais (biblioteca descartada,
+ * artista removido ou renomeado) é liberado pelo GC em vez de ficar no pool para
+ * sempre. O pool é dividido em faixas por hash, cada uma com seu próprio lock, para
+ * que cargas paralelas não disputem um único monitor.
+ * </p>
+ */
+public final class DicionarioStrings {
+
+    private static final int FAIXAS = 16;
+
+    private static final Faixa[] POOL = new Faixa[FAIXAS];
+
+    static {
+        for (int i = 0; i < FAIXAS; i++) POOL[i] = new Faixa();
+    }
+
+    /** Uma faixa do pool; o próprio mapa é o lock. */
+    private static final class Faixa {
+        /** Chave e valor são a mesma instância; a referência fraca no valor não a mantém viva. */
+        final Map<String, WeakReference<String>> valores = new WeakHashMap<>();
+    }
+
+    private DicionarioStrings() {
+    }
+
+    /** Instância canônica de {@code valor} (null continua null). */
+    public static String canonica(String valor) {
+        if (valor == null) return null;
+        if (valor.isEmpty()) return "";
+        Map<String, WeakReference<String>> faixa = faixaDe(valor).valores;
+        synchronized (faixa) {
+            WeakReference<String> ref = faixa.get(valor);
+            String existente = ref == null ? null : ref.get();
+            if (existente != null) return existente;
+            faixa.put(valor, new WeakReference<>(valor));
+            return valor;
+        }
+    }
+
+    /** Quantidade de valores distintos ainda em uso no pool. */
+    public static int tamanho() {
+        int total = 0;
+        for (Faixa faixa : POOL) {
+            synchronized (faixa.valores) {
+                total += faixa.valores.size();
+            }
+        }
+        return total;
+    }
+
+    private static Faixa faixaDe(String valor) {
+        int h = valor.hashCode();
+        return POOL[(h ^ (h >>> 16)) & (FAIXAS - 1)];
+    }
+}
@@ -6,17 +6,23 @@ import exception.RegraNegocioException;
 
 /**
  * Representa uma música dentro da biblioteca.
- * Todos os atributos são privados e acessados via getters/setters.
- * O ID é imutável e usado para identificação única.
+ * Imutável: os atributos só são lidos por getters e uma edição gera outra instância
+ * com o mesmo ID ({@link #comTitulo(String)} etc.), então índices, caches e snapshots
+ * que guardam uma música nunca a veem mudar.
+ * O ID é usado para identificação única.
+ * Artista, álbum e gênero são guardados como instâncias canônicas de {@link DicionarioStrings}.
  */
-public class Musica {
+public final class Musica {
 
     private final UUID id;
-    private String titulo;
-    private String artista;
-    private String album;
-    private String genero;
-    private int duracaoSegundos;
+    private final String titulo;
+    private final String artista;
+    private final String album;
+    private final String genero;
+    private final int duracaoSegundos;
+
+    /** título|artista|álbum com a mesma comparação sem caixa de {@link String#equalsIgnoreCase}. */
+    private final String chaveDuplicidade;
 
     /** Construtor padrão: gera UUID automaticamente */
     public Musica(String titulo, String artista, String album, String genero, int duracaoSegundos) {
@@ -26,44 +32,85 @@ public class Musica {
     /** Construtor usado pela persistência (UUID fornecido) */
     public Musica(UUID id, String titulo, String artista, String album, String genero, int duracaoSegundos) {
         this.id = (id == null ? UUID.randomUUID() : id);
-        setTitulo(titulo);
-        setArtista(artista);
-        setAlbum(album);
-        setGenero(genero);
-        setDuracaoSegundos(duracaoSegundos);
+        this.titulo = validarTitulo(titulo);
+        this.artista = validarArtista(artista);
+        this.album = (album == null ? "" : DicionarioStrings.canonica(album.trim()));
+        this.genero = (genero == null ? "" : DicionarioStrings.canonica(genero.trim()));
+        this.duracaoSegundos = validarDuracao(duracaoSegundos);
+        this.chaveDuplicidade = dobrarCaixa(this.titulo) + '\u0000'
+                + dobrarCaixa(this.artista) + '\u0000'
+                + dobrarCaixa(this.album);
     }
 
     public UUID getId() { return id; }
-
     public String getTitulo() { return titulo; }
-    public void setTitulo(String titulo) {
-        if (titulo == null || titulo.isBlank())
-            throw new RegraNegocioException("Título não pode ser vazio.");
-        this.titulo = titulo.trim();
+    public String getArtista() { return artista; }
+    public String getAlbum() { return album; }
+    public String getGenero() { return genero; }
+    public int getDuracaoSegundos() { return duracaoSegundos; }
+
+    /** Cópia com o mesmo ID e outro título; esta instância não muda. */
+    public Musica comTitulo(String titulo) {
+        return new Musica(id, titulo, artista, album, genero, duracaoSegundos);
     }
 
-    public String getArtista() { return artista; }
-    public void setArtista(String artista) {
-        if (artista == null || artista.isBlank())
-            throw new RegraNegocioException("Artista não pode ser vazio.");
-        this.artista = artista.trim();
+    /** Cópia com o mesmo ID e outro artista. */
+    public Musica comArtista(String artista) {
+        return new Musica(id, titulo, artista, album, genero, duracaoSegundos);
     }
 
-    public String getAlbum() { return album; }
-    public void setAlbum(String album) {
-        this.album = (album == null ? "" : album.trim());
+    /** Cópia com o mesmo ID e outro álbum (null vira vazio). */
+    public Musica comAlbum(String album) {
+        return new Musica(id, titulo, artista, album, genero, duracaoSegundos);
     }
 
-    public String getGenero() { return genero; }
-    public void setGenero(String genero) {
-        this.genero = (genero == null ? "" : genero.trim());
+    /** Cópia com o mesmo ID e outro gênero (null vira vazio). */
+    public Musica comGenero(String genero) {
+        return new Musica(id, titulo, artista, album, genero, duracaoSegundos);
     }
 
-    public int getDuracaoSegundos() { return duracaoSegundos; }
-    public void setDuracaoSegundos(int duracaoSegundos) {
+    /** Cópia com o mesmo ID e outra duração. */
+    public Musica comDuracaoSegundos(int duracaoSegundos) {
+        return new Musica(id, titulo, artista, album, genero, duracaoSegundos);
+    }
+
+    private static String validarTitulo(String titulo) {
+        if (titulo == null || titulo.isBlank())
+            throw new RegraNegocioException("Título não pode ser vazio.");
+        return titulo.trim();
+    }
+
+    private static String validarArtista(String artista) {
+        if (artista == null || artista.isBlank())
+            throw new RegraNegocioException("Artista não pode ser vazio.");
+        return DicionarioStrings.canonica(artista.trim());
+    }
+
+    private static int validarDuracao(int duracaoSegundos) {
         if (duracaoSegundos <= 0)
             throw new RegraNegocioException("Duração deve ser maior que zero.");
-        this.duracaoSegundos = duracaoSegundos;
+        return duracaoSegundos;
+    }
+
+    /**
+     * Chave usada na detecção de duplicadas: título, artista e álbum sem distinção de
+     * caixa. Músicas iguais por {@link #equals} têm sempre a mesma chave; ela é
+     * calculada na construção, então comparar/indexar músicas não aloca strings.
+     */
+    public String getChaveDuplicidade() { return chaveDuplicidade; }
+
+    /**
+     * Mesma dobra de caixa de {@link String#equalsIgnoreCase} (maiúscula e depois minúscula
+     * de cada code point), independente do locale.
+     */
+    private static String dobrarCaixa(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); ) {
+            int cp = s.codePointAt(i);
+            sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
     }
 
     public String toLinha() {
@@ -84,8 +131,9 @@ public class Musica {
             && album.equalsIgnoreCase(outra.album);
     }
 
+    /** Consistente com {@link #equals}: a chave usa a mesma dobra de caixa. */
     @Override
     public int hashCode() {
-        return (titulo.toLowerCase() + "|" + artista.toLowerCase() + "|" + album.toLowerCase()).hashCode();
+        return chaveDuplicidade.hashCode();
     }
 }
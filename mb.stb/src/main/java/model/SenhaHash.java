@@ -0,0 +1,94 @@
+package model;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Hash de senha com PBKDF2-HMAC-SHA256 e sal aleatório, usando só o JDK.
+ * <p>
+ * O valor guardado é {@code pbkdf2-sha256$iterações$sal$hash} (sal e hash em Base64),
+ * então cada hash carrega o próprio custo: mudar {@link #definirIteracoes(int)} afeta
+ * só as senhas geradas depois, e as antigas continuam verificáveis. O custo padrão
+ * vem da propriedade de sistema {@value #PROPRIEDADE_ITERACOES}.
+ * </p>
+ * <p>
+ * Verificar uma senha custa o mesmo que gerá-la (dezenas de milissegundos no padrão),
+ * de propósito; por isso o login da interface roda fora da EDT
+ * ({@code UsuarioRepository.autenticarAsync}).
+ * </p>
+ */
+public final class SenhaHash {
+
+    public static final String PROPRIEDADE_ITERACOES = "mb.senha.iteracoes";
+    public static final int ITERACOES_PADRAO = 210_000;
+    /** Abaixo disso o hash não protege nada. */
+    public static final int ITERACOES_MINIMAS = 1_000;
+
+    private static final String PREFIXO = "pbkdf2-sha256";
+    private static final String ALGORITMO = "PBKDF2WithHmacSHA256";
+    private static final int BYTES_SAL = 16;
+    private static final int BITS_HASH = 256;
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+
+    private static volatile int iteracoes = Math.max(ITERACOES_MINIMAS,
+            Integer.getInteger(PROPRIEDADE_ITERACOES, ITERACOES_PADRAO));
+
+    private SenhaHash() {
+    }
+
+    /** Custo usado pelos próximos hashes gerados. */
+    public static void definirIteracoes(int novasIteracoes) {
+        if (novasIteracoes < ITERACOES_MINIMAS) {
+            throw new IllegalArgumentException("Use pelo menos " + ITERACOES_MINIMAS + " iterações.");
+        }
+        iteracoes = novasIteracoes;
+    }
+
+    public static int getIteracoes() {
+        return iteracoes;
+    }
+
+    /** Gera o hash codificado de uma senha com sal novo. */
+    public static String gerar(String senha) {
+        byte[] sal = new byte[BYTES_SAL];
+        ALEATORIO.nextBytes(sal);
+        int n = iteracoes;
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return PREFIXO + "$" + n + "$" + b64.encodeToString(sal) + "$" + b64.encodeToString(derivar(senha, sal, n));
+    }
+
+    /** Compara em tempo constante; false também para valores mal formados. */
+    public static boolean verificar(String senha, String codificada) {
+        if (senha == null || !ehCodificada(codificada)) return false;
+        String[] partes = codificada.split("\\$");
+        try {
+            int n = Integer.parseInt(partes[1]);
+            byte[] sal = Base64.getDecoder().decode(partes[2]);
+            byte[] esperado = Base64.getDecoder().decode(partes[3]);
+            return MessageDigest.isEqual(esperado, derivar(senha, sal, n));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /** Indica se o valor está no formato gerado por {@link #gerar(String)}. */
+    public static boolean ehCodificada(String valor) {
+        return valor != null && valor.startsWith(PREFIXO + "$") && valor.split("\\$").length == 4;
+    }
+
+    private static byte[] derivar(String senha, byte[] sal, int n) {
+        PBEKeySpec spec = new PBEKeySpec(senha.toCharArray(), sal, n, BITS_HASH);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITMO).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 indisponível nesta JVM", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package model;
 
+import java.util.Locale;
+
 import exception.RegraNegocioException;
 /**
  * Representa um usuário do sistema.
  * email é considerado identificador e não possui setter.
+ * A senha nunca é guardada em claro: {@link #setSenha(String)} grava o hash
+ * ({@link SenhaHash}) e {@link #autenticar(String, String)} o verifica.
  */
 public class Usuario {
     private String nome;
@@ -11,12 +15,39 @@ public class Usuario {
     private String senha;
 
     public Usuario(String nome, String email, String senha) {
+        this(nome, email);
+        setSenha(senha);
+    }
+
+    private Usuario(String nome, String email) {
         if (email == null || email.isBlank()) {
             throw new RegraNegocioException("Email não pode ser vazio.");
         }
-        this.email = email.trim().toLowerCase();
+        this.email = normalizarEmail(email);
         setNome(nome);
-        setSenha(senha);
+    }
+
+    /**
+     * Forma em que o email é guardado e comparado: sem espaços nas pontas e em
+     * minúsculas independentes do locale. Buscas por email devem passar por aqui.
+     */
+    public static String normalizarEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Recria um usuário já persistido, com a senha no formato de {@link #getSenha()}.
+     * Não gera hash: senhas em claro de arquivos antigos são migradas pelo storage.
+     *
+     * @throws IllegalArgumentException se a senha não estiver no formato de {@link SenhaHash}
+     */
+    public static Usuario comSenhaCodificada(String nome, String email, String senhaCodificada) {
+        if (!SenhaHash.ehCodificada(senhaCodificada)) {
+            throw new IllegalArgumentException("Senha persistida não está no formato de hash.");
+        }
+        Usuario u = new Usuario(nome, email);
+        u.senha = senhaCodificada;
+        return u;
     }
 
     public String getNome() { return nome; }
@@ -29,16 +60,18 @@ public class Usuario {
 
     public String getEmail() { return email; }
 
+    /** Hash codificado da senha (para persistência), nunca a senha em claro. */
     public String getSenha() { return senha; }
     public void setSenha(String senha) {
         if (senha == null || senha.length() < 4) {
             throw new RegraNegocioException("Senha deve ter pelo menos 4 caracteres.");
         }
-        this.senha = senha;
+        this.senha = SenhaHash.gerar(senha);
     }
 
+    /** Custa uma derivação PBKDF2 quando o email confere; evite chamar na EDT. */
     public boolean autenticar(String email, String senha) {
-        return this.email.equalsIgnoreCase(email) && this.senha.equals(senha);
+        return this.email.equalsIgnoreCase(email) && SenhaHash.verificar(senha, this.senha);
     }
 
     @Override
@@ -0,0 +1,162 @@
+package persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import model.Musica;
+
+/**
+ * Carga do CSV dividida em faixas de bytes processadas em paralelo.
+ * <p>
+ * As faixas sempre começam logo após um '\n'. Isso nunca corta um registro:
+ * o escape do formato grava quebras de linha como os dois caracteres {@code \n},
+ * então um byte 0x0A cru só existe como terminador de linha (e em UTF-8 ele
+ * nunca faz parte de um caractere multibyte). Cada faixa é lida com o
+ * {@link LeitorCsv} num {@link ForkJoinPool} e os resultados são concatenados na
+ * ordem original do arquivo.
+ * </p>
+ * <p>
+ * As faixas são lidas com leituras posicionais do canal num buffer do heap, sem
+ * mapear o arquivo: um trecho mapeado só é liberado pelo GC e, no Windows, impede
+ * que o próximo salvamento substitua o arquivo.
+ * </p>
+ */
+final class CarregadorParalelo {
+
+    /** Abaixo disso a carga sequencial é mais rápida que dividir o trabalho. */
+    static final long TAMANHO_MINIMO = 4L << 20;
+
+    private static final long TAMANHO_MINIMO_FAIXA = 1L << 20;
+    private static final int TAMANHO_BLOCO = 64 * 1024;
+
+    private CarregadorParalelo() {
+    }
+
+    static boolean compensa(long tamanhoArquivo) {
+        return tamanhoArquivo >= TAMANHO_MINIMO;
+    }
+
+    static List<Musica> carregar(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            List<long[]> faixas = dividir(canal);
+
+            List<Callable<List<Musica>>> tarefas = new ArrayList<>(faixas.size());
+            for (long[] faixa : faixas) {
+                tarefas.add(() -> carregarFaixa(canal, faixa[0], faixa[1]));
+            }
+
+            List<Musica> lista = new ArrayList<>();
+            for (Future<List<Musica>> parcial : ForkJoinPool.commonPool().invokeAll(tarefas)) {
+                lista.addAll(parcial.get());
+            }
+            return lista;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Carga interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao carregar faixa do arquivo", e.getCause());
+        }
+    }
+
+    /** Faixas [início, fim) alinhadas em início de linha, cobrindo o arquivo inteiro. */
+    private static List<long[]> dividir(FileChannel canal) throws IOException {
+        long tamanho = canal.size();
+        int partes = ForkJoinPool.getCommonPoolParallelism() * 4;
+        long alvo = Math.max(TAMANHO_MINIMO_FAIXA, tamanho / partes);
+
+        List<long[]> faixas = new ArrayList<>();
+        long inicio = 0;
+        while (inicio < tamanho) {
+            long fim = inicioDaProximaLinha(canal, Math.min(tamanho, inicio + alvo));
+            faixas.add(new long[]{inicio, fim});
+            inicio = fim;
+        }
+        return faixas;
+    }
+
+    /** Primeira posição após o próximo '\n' a partir de {@code pos} (ou o fim do arquivo). */
+    private static long inicioDaProximaLinha(FileChannel canal, long pos) throws IOException {
+        long tamanho = canal.size();
+        if (pos >= tamanho) return tamanho;
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        while (pos < tamanho) {
+            buf.clear();
+            int lidos = canal.read(buf, pos);
+            if (lidos <= 0) break;
+            for (int i = 0; i < lidos; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += lidos;
+        }
+        return tamanho;
+    }
+
+    private static List<Musica> carregarFaixa(FileChannel canal, long inicio, long fim) throws IOException {
+        List<Musica> lista = new ArrayList<>();
+        try (LeitorCsv leitor = new LeitorCsv(new InputStreamReader(new EntradaFaixa(canal, inicio, fim), StandardCharsets.UTF_8))) {
+            while (leitor.proximaLinha()) {
+                if (leitor.linhaEmBranco()) continue;
+                Musica m = leitor.decodificarMusica(0);
+                if (m != null) lista.add(m);
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * InputStream sobre a faixa [início, fim) do canal. Lê com {@link FileChannel#read(ByteBuffer, long)},
+     * que não mexe na posição do canal, então as faixas compartilham o mesmo canal entre threads.
+     */
+    private static final class EntradaFaixa extends InputStream {
+        private final FileChannel canal;
+        private final long fim;
+        private long pos;
+        private final ByteBuffer buf = ByteBuffer.allocate(TAMANHO_BLOCO);
+
+        EntradaFaixa(FileChannel canal, long inicio, long fim) {
+            this.canal = canal;
+            this.pos = inicio;
+            this.fim = fim;
+            buf.limit(0);
+        }
+
+        /** Recarrega o buffer quando esvazia; false no fim da faixa. */
+        private boolean encher() throws IOException {
+            if (buf.hasRemaining()) return true;
+            if (pos >= fim) return false;
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), fim - pos));
+            int lidos = canal.read(buf, pos);
+            buf.flip();
+            if (lidos <= 0) return false; // arquivo encolheu depois da divisão
+            pos += lidos;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return encher() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!encher()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+    }
+}
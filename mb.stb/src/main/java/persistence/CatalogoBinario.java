@@ -0,0 +1,325 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import model.DicionarioStrings;
+import model.Musica;
+
+/**
+ * Formato binário do catálogo ({@code .mbc}), lido via {@link MappedByteBuffer}
+ * ({@link #abrir(Path)}) ou copiado de uma vez para a memória ({@link #ler(Path)}).
+ *
+ * <pre>
+ * Cabeçalho (32 bytes):
+ *   int  magic ("MBIB")   int  versão        int  quantidade   int  entradas do dicionário
+ *   long início do heap   long tamanho do heap
+ * Registros (40 bytes cada, a partir do byte 32):
+ *   long UUID (msb)  long UUID (lsb)  int duração
+ *   int offset, int tamanho do título no heap
+ *   int código do artista, int código do álbum, int código do gênero
+ * Heap: strings em UTF-8 (títulos e valores do dicionário).
+ * Dicionário (logo após o heap): (int offset, int tamanho) no heap por código.
+ * </pre>
+ *
+ * Artista, álbum e gênero se repetem muito, então ficam uma única vez no dicionário;
+ * cada código é decodificado (e canonizado em {@link DicionarioStrings}) só no primeiro
+ * acesso e depois reaproveitado por todas as músicas que o referenciam.
+ * Como os registros têm largura fixa, a música {@code i} é decodificada só quando
+ * acessada; ID e duração podem ser lidos sem tocar nas strings.
+ * <p>
+ * Ao abrir, todas as referências dos registros (códigos do dicionário e trechos do
+ * heap) são conferidas: um arquivo corrompido falha ali com {@link IOException}, e não
+ * no meio da leitura com um índice fora dos limites.
+ * </p>
+ * <p>
+ * A versão 1 (registros de 52 bytes com as quatro strings no heap, sem dicionário)
+ * continua legível; a gravação sempre usa a versão atual.
+ * </p>
+ */
+public final class CatalogoBinario {
+
+    /** Extensão que faz o {@link FileStorage} usar este formato. */
+    public static final String EXTENSAO = ".mbc";
+
+    static final int MAGIC = 0x4D424942; // "MBIB"
+    static final int VERSAO = 2;
+    private static final int VERSAO_SEM_DICIONARIO = 1;
+
+    private static final int TAMANHO_CABECALHO = 32;
+    private static final int TAMANHO_REGISTRO = 40;
+    private static final int TAMANHO_REGISTRO_V1 = 52;
+    private static final int TAMANHO_ENTRADA_DICIONARIO = 8;
+    private static final int TAMANHO_BUFFER_ESCRITA = 1 << 16;
+
+    private final ByteBuffer mapa;
+    private final int versao;
+    private final int tamanhoRegistro;
+    private final int quantidade;
+    private final int inicioHeap;
+    private final long tamanhoHeap;
+    private final int inicioDicionario;
+    /** Valores do dicionário já decodificados; corridas só repetem trabalho, pois são canônicos. */
+    private final String[] dicionario;
+
+    private CatalogoBinario(ByteBuffer mapa) throws IOException {
+        this.mapa = mapa;
+        if (mapa.capacity() < TAMANHO_CABECALHO || mapa.getInt(0) != MAGIC) {
+            throw new IOException("Arquivo não é um catálogo binário");
+        }
+        this.versao = mapa.getInt(4);
+        if (versao != VERSAO && versao != VERSAO_SEM_DICIONARIO) {
+            throw new IOException("Versão de catálogo não suportada: " + versao);
+        }
+        this.tamanhoRegistro = versao == VERSAO ? TAMANHO_REGISTRO : TAMANHO_REGISTRO_V1;
+        this.quantidade = mapa.getInt(8);
+        int entradasDicionario = versao == VERSAO ? mapa.getInt(12) : 0;
+        long inicio = mapa.getLong(16);
+        this.tamanhoHeap = mapa.getLong(24);
+        if (quantidade < 0 || entradasDicionario < 0 || inicio < 0 || tamanhoHeap < 0
+                || inicio + tamanhoHeap + (long) entradasDicionario * TAMANHO_ENTRADA_DICIONARIO > mapa.capacity()
+                || (long) TAMANHO_CABECALHO + (long) quantidade * tamanhoRegistro > inicio) {
+            throw new IOException("Catálogo binário truncado ou corrompido");
+        }
+        this.inicioHeap = (int) inicio;
+        this.inicioDicionario = (int) (inicio + tamanhoHeap);
+        this.dicionario = new String[entradasDicionario];
+        validarReferencias();
+    }
+
+    /**
+     * Mapeia o arquivo em memória; nenhuma música é decodificada aqui. O mapeamento só
+     * é liberado quando o catálogo é coletado pelo GC, e até lá o Windows não deixa
+     * substituir nem apagar o arquivo: para carregar um catálogo que será regravado,
+     * use {@link #ler(Path)}.
+     */
+    public static CatalogoBinario abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE) throw new IOException("Catálogo binário maior que 2 GB");
+            return new CatalogoBinario(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    /**
+     * Copia o arquivo inteiro para a memória e o fecha em seguida; as músicas continuam
+     * sendo decodificadas só quando acessadas, mas nada fica mapeado.
+     */
+    public static CatalogoBinario ler(Path arquivo) throws IOException {
+        if (Files.size(arquivo) > Integer.MAX_VALUE) throw new IOException("Catálogo binário maior que 2 GB");
+        return new CatalogoBinario(ByteBuffer.wrap(Files.readAllBytes(arquivo)));
+    }
+
+    /** Confere os códigos e os trechos do heap de todos os registros e do dicionário. */
+    private void validarReferencias() throws IOException {
+        for (int codigo = 0; codigo < dicionario.length; codigo++) {
+            validarTexto(inicioDicionario + codigo * TAMANHO_ENTRADA_DICIONARIO, "entrada " + codigo + " do dicionário");
+        }
+        for (int i = 0; i < quantidade; i++) {
+            int base = TAMANHO_CABECALHO + i * tamanhoRegistro;
+            if (versao == VERSAO_SEM_DICIONARIO) {
+                for (int campo = 0; campo < 4; campo++) validarTexto(base + 20 + campo * 8, "música " + i);
+                continue;
+            }
+            validarTexto(base + 20, "música " + i);
+            for (int ref = base + 28; ref <= base + 36; ref += 4) {
+                int codigo = mapa.getInt(ref);
+                if (codigo < 0 || codigo >= dicionario.length) {
+                    throw new IOException("Catálogo binário corrompido: a música " + i + " usa o código " + codigo
+                            + ", mas o dicionário tem " + dicionario.length + " entradas");
+                }
+            }
+        }
+    }
+
+    private void validarTexto(int ref, String dono) throws IOException {
+        int offset = mapa.getInt(ref);
+        int tamanho = mapa.getInt(ref + 4);
+        if (offset < 0 || tamanho < 0 || (long) offset + tamanho > tamanhoHeap) {
+            throw new IOException("Catálogo binário corrompido: texto da " + dono + " fora do heap");
+        }
+    }
+
+    public int tamanho() {
+        return quantidade;
+    }
+
+    public UUID id(int i) {
+        int base = registro(i);
+        return new UUID(mapa.getLong(base), mapa.getLong(base + 8));
+    }
+
+    public int duracao(int i) {
+        return mapa.getInt(registro(i) + 16);
+    }
+
+    /** Decodifica a música {@code i}. */
+    public Musica musica(int i) {
+        int base = registro(i);
+        UUID id = new UUID(mapa.getLong(base), mapa.getLong(base + 8));
+        int duracao = mapa.getInt(base + 16);
+        if (versao == VERSAO_SEM_DICIONARIO) {
+            return new Musica(id, texto(base + 20), texto(base + 28), texto(base + 36), texto(base + 44), duracao);
+        }
+        return new Musica(id,
+                texto(base + 20),
+                valorDicionario(mapa.getInt(base + 28)),
+                valorDicionario(mapa.getInt(base + 32)),
+                valorDicionario(mapa.getInt(base + 36)),
+                duracao);
+    }
+
+    /** Quantidade de valores distintos de artista/álbum/gênero no arquivo. */
+    public int tamanhoDicionario() {
+        return dicionario.length;
+    }
+
+    /** Visão de lista que decodifica cada música sob demanda. */
+    public List<Musica> comoLista() {
+        return new AbstractList<>() {
+            @Override
+            public Musica get(int index) {
+                return musica(index);
+            }
+
+            @Override
+            public int size() {
+                return quantidade;
+            }
+        };
+    }
+
+    private int registro(int i) {
+        if (i < 0 || i >= quantidade) throw new IndexOutOfBoundsException(i);
+        return TAMANHO_CABECALHO + i * tamanhoRegistro;
+    }
+
+    /** String do heap a partir do par (offset, tamanho) gravado em {@code ref}. */
+    private String texto(int ref) {
+        int offset = mapa.getInt(ref);
+        int tamanho = mapa.getInt(ref + 4);
+        if (tamanho == 0) return "";
+        byte[] bytes = new byte[tamanho];
+        mapa.get(inicioHeap + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String valorDicionario(int codigo) {
+        String valor = dicionario[codigo];
+        if (valor == null) {
+            valor = DicionarioStrings.canonica(texto(inicioDicionario + codigo * TAMANHO_ENTRADA_DICIONARIO));
+            dicionario[codigo] = valor;
+        }
+        return valor;
+    }
+
+    // ======== ESCRITA ========
+
+    /**
+     * Grava o catálogo em uma passada: registros e heap são escritos por buffers
+     * separados em suas regiões do arquivo, sem montar o heap inteiro em memória.
+     * Só o dicionário (valores distintos) fica em memória até o fim.
+     */
+    public static void gravar(Path arquivo, Collection<Musica> musicas) throws IOException {
+        int quantidade = musicas.size();
+        long inicioHeap = TAMANHO_CABECALHO + (long) quantidade * TAMANHO_REGISTRO;
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Regiao registros = new Regiao(canal, TAMANHO_CABECALHO);
+            Regiao heap = new Regiao(canal, inicioHeap);
+            Map<String, Integer> codigos = new HashMap<>();
+            ByteBuffer entradas = ByteBuffer.allocate(TAMANHO_ENTRADA_DICIONARIO * 64);
+
+            for (Musica m : musicas) {
+                registros.garantir(TAMANHO_REGISTRO);
+                registros.buf.putLong(m.getId().getMostSignificantBits());
+                registros.buf.putLong(m.getId().getLeastSignificantBits());
+                registros.buf.putInt(m.getDuracaoSegundos());
+                long ref = heap.escreverTexto(m.getTitulo());
+                registros.buf.putInt((int) (ref >>> 32)).putInt((int) ref);
+                for (String s : new String[]{m.getArtista(), m.getAlbum(), m.getGenero()}) {
+                    String valor = s == null ? "" : s;
+                    Integer codigo = codigos.get(valor);
+                    if (codigo == null) {
+                        codigo = codigos.size();
+                        codigos.put(valor, codigo);
+                        if (entradas.remaining() < TAMANHO_ENTRADA_DICIONARIO) {
+                            entradas = ByteBuffer.allocate(entradas.capacity() * 2).put(entradas.flip());
+                        }
+                        long refValor = heap.escreverTexto(valor);
+                        entradas.putInt((int) (refValor >>> 32)).putInt((int) refValor);
+                    }
+                    registros.buf.putInt(codigo);
+                }
+            }
+            registros.descarregar();
+            heap.descarregar();
+
+            long tamanhoHeap = heap.escritos;
+            entradas.flip();
+            long posDicionario = inicioHeap + tamanhoHeap;
+            while (entradas.hasRemaining()) posDicionario += canal.write(entradas, posDicionario);
+
+            ByteBuffer cabecalho = ByteBuffer.allocate(TAMANHO_CABECALHO);
+            cabecalho.putInt(MAGIC).putInt(VERSAO).putInt(quantidade).putInt(codigos.size())
+                    .putLong(inicioHeap).putLong(tamanhoHeap).flip();
+            while (cabecalho.hasRemaining()) canal.write(cabecalho, cabecalho.position());
+        }
+    }
+
+    /** Buffer de escrita posicionado numa região do arquivo. */
+    private static final class Regiao {
+        private final FileChannel canal;
+        private final ByteBuffer buf = ByteBuffer.allocate(TAMANHO_BUFFER_ESCRITA);
+        private long posicao;
+        /** Bytes aceitos até agora (inclusive os ainda no buffer). */
+        private long escritos;
+
+        Regiao(FileChannel canal, long posicao) {
+            this.canal = canal;
+            this.posicao = posicao;
+        }
+
+        void garantir(int bytes) throws IOException {
+            if (buf.remaining() < bytes) descarregar();
+        }
+
+        /** Anexa a string em UTF-8 e devolve {@code offset << 32 | tamanho} relativo ao início da região. */
+        long escreverTexto(String s) throws IOException {
+            byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+            if (escritos + bytes.length > Integer.MAX_VALUE) throw new IOException("Heap de strings excede 2 GB");
+            long ref = (escritos << 32) | bytes.length;
+            escrever(bytes);
+            return ref;
+        }
+
+        void escrever(byte[] bytes) throws IOException {
+            escritos += bytes.length;
+            int off = 0;
+            while (off < bytes.length) {
+                if (!buf.hasRemaining()) descarregar();
+                int n = Math.min(buf.remaining(), bytes.length - off);
+                buf.put(bytes, off, n);
+                off += n;
+            }
+        }
+
+        void descarregar() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) posicao += canal.write(buf, posicao);
+            buf.clear();
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import model.Musica;
+
+/**
+ * Catálogo dividido em N segmentos CSV por hash do UUID, descritos por um manifesto.
+ * <p>
+ * Cada linha de segmento é {@code <sequência hex de 16 dígitos>;<linha do CSV>}. A
+ * sequência registra a posição da música no catálogo, então a carga (feita em
+ * paralelo, um segmento por tarefa) reconstrói a ordem original mesmo com as
+ * músicas espalhadas. Uma mutação marca só o segmento do seu ID como sujo e apenas
+ * os segmentos sujos são regravados, cada um de forma atômica.
+ * </p>
+ * Cada segmento guarda em memória só a sequência e a própria {@link Musica} (a
+ * instância entregue ao chamador, sem cópia); as linhas CSV são geradas apenas ao
+ * regravar um segmento sujo. {@link #registrar(List)} marca os segmentos pelos IDs
+ * das mutações; {@link #salvar(List)} compara sequência e campos com o que foi
+ * gravado, sem codificar o catálogo inteiro.
+ */
+final class CatalogoSegmentado {
+
+    private static final String CABECALHO_MANIFESTO = "MBSEG";
+    private static final int VERSAO_MANIFESTO = 1;
+    private static final int DIGITOS_SEQUENCIA = 16;
+
+    /** Música gravada num segmento e sua posição no catálogo. */
+    private record Entrada(long sequencia, Musica musica) {
+    }
+
+    /** Música lida de um segmento, com sua posição no catálogo. */
+    private record Lida(long sequencia, Musica musica) {
+    }
+
+    private final Path base;
+    private final Path manifesto;
+    private int quantidade;
+
+    private List<Map<UUID, Entrada>> segmentos;
+    private boolean[] sujos;
+    private long proximaSequencia;
+    private boolean manifestoGravado;
+
+    CatalogoSegmentado(Path base, int quantidade) {
+        this.base = base;
+        this.manifesto = Paths.get(base + ".manifesto");
+        this.quantidade = quantidade;
+    }
+
+    // ======== CARGA ========
+
+    synchronized List<Musica> carregar() {
+        List<Lida> lidas = new ArrayList<>();
+        try {
+            if (Files.exists(manifesto)) {
+                lerManifesto();
+                lidas = carregarSegmentos();
+                manifestoGravado = true;
+            } else if (Files.exists(base)) {
+                // Migração do arquivo único: tudo fica sujo e vai para os segmentos no próximo salvar
+                System.out.println("[FileStorage] Migrando " + base.toAbsolutePath() + " para " + quantidade + " segmentos");
+                long seq = 0;
+                for (Musica m : new FileStorage(base).carregar()) lidas.add(new Lida(seq++, m));
+            }
+        } catch (IOException e) {
+            System.err.println("Falha ao carregar catálogo segmentado: " + e.getMessage());
+        }
+
+        lidas.sort(Comparator.comparingLong(Lida::sequencia));
+        iniciarSegmentos();
+        Map<UUID, Musica> porId = new LinkedHashMap<>(lidas.size() * 2);
+        for (Lida l : lidas) {
+            Musica m = l.musica();
+            long seq = l.sequencia();
+            segmentos.get(segmentoDe(m.getId())).put(m.getId(), new Entrada(seq, m));
+            // ID repetido: a última ocorrência vence e vai para a posição dela
+            porId.remove(m.getId());
+            porId.put(m.getId(), m);
+            proximaSequencia = Math.max(proximaSequencia, seq + 1);
+        }
+        if (!manifestoGravado) Arrays.fill(sujos, !porId.isEmpty());
+        return new ArrayList<>(porId.values());
+    }
+
+    private void lerManifesto() throws IOException {
+        List<String> linhas = Files.readAllLines(manifesto, StandardCharsets.UTF_8);
+        String[] cabecalho = linhas.isEmpty() ? new String[0] : linhas.get(0).split(";");
+        if (cabecalho.length < 3 || !CABECALHO_MANIFESTO.equals(cabecalho[0])
+                || Integer.parseInt(cabecalho[1]) != VERSAO_MANIFESTO) {
+            throw new IOException("Manifesto inválido: " + manifesto);
+        }
+        quantidade = Integer.parseInt(cabecalho[2]);
+    }
+
+    private List<Lida> carregarSegmentos() throws IOException {
+        List<Callable<List<Lida>>> tarefas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            Path seg = arquivoDoSegmento(i);
+            tarefas.add(() -> carregarSegmento(seg));
+        }
+        List<Lida> lidas = new ArrayList<>();
+        try {
+            for (Future<List<Lida>> parcial : ForkJoinPool.commonPool().invokeAll(tarefas)) {
+                lidas.addAll(parcial.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Carga interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao carregar segmento", e.getCause());
+        }
+        return lidas;
+    }
+
+    private static List<Lida> carregarSegmento(Path seg) throws IOException {
+        List<Lida> lidas = new ArrayList<>();
+        if (!Files.exists(seg)) return lidas;
+        try (LeitorCsv leitor = FileStorage.abrirLeitor(seg)) {
+            while (leitor.proximaLinha()) {
+                if (leitor.linhaEmBranco()) continue;
+                if (leitor.charNaLinha(DIGITOS_SEQUENCIA) != ';') {
+                    System.err.println("Linha de segmento inválida ignorada: " + leitor.linhaAtual());
+                    continue;
+                }
+                long seq;
+                try {
+                    seq = leitor.decodificarHex(0, DIGITOS_SEQUENCIA);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Linha de segmento inválida ignorada: " + leitor.linhaAtual());
+                    continue;
+                }
+                Musica m = leitor.decodificarMusica(DIGITOS_SEQUENCIA + 1);
+                if (m != null) lidas.add(new Lida(seq, m));
+            }
+        }
+        return lidas;
+    }
+
+    // ======== MUTAÇÕES ========
+
+    /** Aplica as mutações aos segmentos e grava só os que mudaram. */
+    synchronized void registrar(List<Mutacao> mutacoes) {
+        garantirCarregado();
+        for (Mutacao mt : mutacoes) {
+            int s = segmentoDe(mt.id());
+            Map<UUID, Entrada> seg = segmentos.get(s);
+            switch (mt.tipo()) {
+                case INCLUSAO -> seg.put(mt.id(), new Entrada(proximaSequencia++, mt.musica()));
+                case EDICAO -> {
+                    Entrada atual = seg.get(mt.id());
+                    long seq = atual != null ? atual.sequencia() : proximaSequencia++;
+                    seg.put(mt.id(), new Entrada(seq, mt.musica()));
+                }
+                case REMOCAO -> {
+                    if (seg.remove(mt.id()) == null) continue;
+                }
+            }
+            sujos[s] = true;
+        }
+        gravarSujos();
+    }
+
+    /**
+     * Recebe o catálogo completo e regrava apenas os segmentos cujo conteúdo mudou.
+     * Sequências existentes são mantidas enquanto a ordem da lista as respeitar, para
+     * que uma remoção ou inclusão não desloque as posições de todos os segmentos.
+     */
+    synchronized void salvar(List<Musica> musicas) {
+        garantirCarregado();
+        List<Map<UUID, Entrada>> anteriores = segmentos;
+        iniciarSegmentos();
+
+        long ultima = -1;
+        for (Musica m : musicas) {
+            int s = segmentoDe(m.getId());
+            Entrada antiga = anteriores.get(s).remove(m.getId());
+            long seq = (antiga != null && antiga.sequencia() > ultima) ? antiga.sequencia() : proximaSequencia++;
+            ultima = seq;
+            Entrada nova = new Entrada(seq, m);
+            segmentos.get(s).put(m.getId(), nova);
+            if (antiga == null || antiga.sequencia() != seq || !mesmosCampos(antiga.musica(), m)) sujos[s] = true;
+        }
+        // O que sobrou nos mapas anteriores saiu do catálogo
+        for (int i = 0; i < quantidade; i++) {
+            if (!anteriores.get(i).isEmpty()) sujos[i] = true;
+        }
+        gravarSujos();
+    }
+
+    /**
+     * Compara os campos gravados; o ID já é a chave da entrada. Como {@link Musica} é
+     * imutável, a mesma instância nunca mudou desde a gravação.
+     */
+    private static boolean mesmosCampos(Musica gravada, Musica atual) {
+        return gravada == atual
+                || (gravada.getDuracaoSegundos() == atual.getDuracaoSegundos()
+                && gravada.getTitulo().equals(atual.getTitulo())
+                && gravada.getArtista().equals(atual.getArtista())
+                && gravada.getAlbum().equals(atual.getAlbum())
+                && gravada.getGenero().equals(atual.getGenero()));
+    }
+
+    // ======== GRAVAÇÃO ========
+
+    private void gravarSujos() {
+        try {
+            if (base.getParent() != null) Files.createDirectories(base.getParent());
+            for (int i = 0; i < quantidade; i++) {
+                if (!sujos[i]) continue;
+                List<String> linhas = linhasDoSegmento(segmentos.get(i));
+                FileStorage.substituirAtomicamente(arquivoDoSegmento(i),
+                        temporario -> Files.write(temporario, linhas, StandardCharsets.UTF_8));
+                sujos[i] = false;
+            }
+            // O manifesto vem por último: sem ele, os segmentos ainda não formam um catálogo
+            if (!manifestoGravado) {
+                List<String> conteudo = new ArrayList<>();
+                conteudo.add(CABECALHO_MANIFESTO + ";" + VERSAO_MANIFESTO + ";" + quantidade);
+                for (int i = 0; i < quantidade; i++) conteudo.add(arquivoDoSegmento(i).getFileName().toString());
+                FileStorage.substituirAtomicamente(manifesto,
+                        temporario -> Files.write(temporario, conteudo, StandardCharsets.UTF_8));
+                manifestoGravado = true;
+            }
+        } catch (IOException e) {
+            // Os segmentos que falharam continuam sujos e são tentados de novo na próxima gravação.
+            System.err.println("Falha ao gravar segmento: " + e.getMessage());
+        }
+    }
+
+    /** Linhas do segmento na ordem do catálogo. */
+    private static List<String> linhasDoSegmento(Map<UUID, Entrada> seg) {
+        List<Entrada> entradas = new ArrayList<>(seg.values());
+        entradas.sort(Comparator.comparingLong(Entrada::sequencia));
+        List<String> linhas = new ArrayList<>(entradas.size());
+        for (Entrada e : entradas) {
+            linhas.add(String.format("%016x", e.sequencia()) + ";" + FileStorage.paraLinha(e.musica()));
+        }
+        return linhas;
+    }
+
+    // ======== AUXILIARES ========
+
+    private void garantirCarregado() {
+        if (segmentos == null) carregar();
+    }
+
+    private void iniciarSegmentos() {
+        segmentos = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) segmentos.add(new HashMap<>());
+        if (sujos == null || sujos.length != quantidade) sujos = new boolean[quantidade];
+    }
+
+    private int segmentoDe(UUID id) {
+        return Math.floorMod(id.hashCode(), quantidade);
+    }
+
+    private Path arquivoDoSegmento(int i) {
+        return Paths.get(base + String.format(".seg%03d", i));
+    }
+}
@@ -0,0 +1,48 @@
+package persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import model.Musica;
+
+/**
+ * Conversão entre o catálogo CSV e o binário ({@link CatalogoBinario}).
+ * <p>
+ * Os dois formatos guardam os mesmos seis campos, então a conversão é sem perdas
+ * nos dois sentidos: ida e volta reproduz o mesmo catálogo, na mesma ordem.
+ * </p>
+ * Uso: {@code java persistence.ConversorCatalogo <origem> <destino>} — o sentido
+ * é decidido pela extensão do destino.
+ */
+public final class ConversorCatalogo {
+
+    private ConversorCatalogo() {
+    }
+
+    public static int csvParaBinario(Path csv, Path binario) throws IOException {
+        List<Musica> musicas = new FileStorage(csv).carregar();
+        CatalogoBinario.gravar(binario, musicas);
+        return musicas.size();
+    }
+
+    public static int binarioParaCsv(Path binario, Path csv) throws IOException {
+        List<Musica> musicas = CatalogoBinario.abrir(binario).comoLista();
+        new FileStorage(csv).salvar(musicas);
+        return musicas.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Uso: ConversorCatalogo <origem> <destino>");
+            System.exit(1);
+        }
+        Path origem = Paths.get(args[0]);
+        Path destino = Paths.get(args[1]);
+        int total = destino.toString().endsWith(CatalogoBinario.EXTENSAO)
+                ? csvParaBinario(origem, destino)
+                : binarioParaCsv(origem, destino);
+        System.out.printf("%d músicas convertidas para %s%n", total, destino.toAbsolutePath());
+    }
+}
@@ -1,30 +1,129 @@
 package persistence;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import model.Musica;
 
 /**
  * Persistência simples em arquivo CSV (delimitador ';').
  * Suporta escapes: ';' -> '\;', '\' -> '\\', '\n' -> '\n'.
+ * <p>
+ * No modo journal, cada mutação é anexada a um log ao lado do CSV
+ * ({@code musicas.csv.journal}) em vez de reescrever o arquivo inteiro. Cada lote é
+ * anexado por um {@link FileChannel} e sincronizado (fsync) antes de {@link #registrar(List)}
+ * retornar; uma última linha incompleta, deixada por uma queda, é cortada antes do
+ * primeiro anexo.
+ * {@link #carregar()} reaplica o log sobre o último snapshot e a compactação
+ * (novo snapshot + descarte do log) roda em segundo plano.
+ * </p>
+ * <p>
+ * Catálogos a partir de alguns MB são carregados em paralelo por {@link CarregadorParalelo}.
+ * </p>
+ * <p>
+ * Se o caminho terminar em {@value CatalogoBinario#EXTENSAO}, o snapshot usa o formato
+ * binário de {@link CatalogoBinario} em vez do CSV; o journal continua textual. Nesse
+ * caso {@link #carregar()} devolve uma lista imutável que decodifica cada música no acesso.
+ * </p>
+ * <p>
+ * Todo snapshot é gravado num arquivo temporário, sincronizado com o disco (fsync) e
+ * renomeado atomicamente sobre o original: uma queda no meio da gravação deixa o
+ * catálogo anterior intacto. Chamadas concorrentes de {@link #salvar(List)} gravam uma
+ * de cada vez, na ordem em que chegam; juntar várias mutações numa só gravação cabe a
+ * quem sabe qual lista é a mais recente (ver {@code BibliotecaMusical}).
+ * </p>
+ * <p>
+ * No modo segmentado ({@link #FileStorage(Path, int)}), o catálogo é dividido em
+ * N arquivos por hash do UUID ({@link CatalogoSegmentado}) e cada gravação só
+ * reescreve os segmentos alterados.
+ * </p>
  */
 public class FileStorage {
 
-    private static final String CAMINHO_PADRAO =
-            "C:\\Users\\Strange brick\\OneDrive\\Desktop\\Music-Bib---base-main\\mb.stb\\musicas.csv";
+    /** Diretório dos arquivos da aplicação quando nenhum caminho é informado. */
+    static final Path DIRETORIO_PADRAO =
+            Paths.get("C:\\Users\\Strange brick\\OneDrive\\Desktop\\Music-Bib---base-main\\mb.stb");
+
+    private static final Path CAMINHO_PADRAO = DIRETORIO_PADRAO.resolve("musicas.csv");
+
+    /** Quantidade de registros no journal que dispara a compactação em segundo plano. */
+    private static final int LIMITE_COMPACTACAO = 10_000;
+
+    private static final char OP_INCLUSAO = 'I';
+    private static final char OP_EDICAO = 'E';
+    private static final char OP_REMOCAO = 'R';
 
     private final Path arquivo;
+    private final boolean journal;
+    private final boolean binario;
+    private final Path arquivoJournal;
+    private final Path arquivoJournalCompactando;
+    /** Layout segmentado; null no modo de arquivo único. */
+    private final CatalogoSegmentado segmentado;
+
+    private final Object journalLock = new Object();
+    private ExecutorService compactador;
+    private Future<?> compactacaoEmAndamento;
+    private int registrosNoJournal;
+    /** Se a cauda do journal já foi conferida desde a abertura (ou desde a última falha de escrita). */
+    private boolean caudaVerificada;
+
+    /** Serializa as gravações de snapshot, que compartilham o mesmo temporário. */
+    private final Object snapshotLock = new Object();
+
+    private volatile boolean diretorioPronto;
 
     public FileStorage(Path arquivo) {
-        this.arquivo = (arquivo != null) ? arquivo : Paths.get(CAMINHO_PADRAO);
-        // REMOVIDO: criarArquivoSeNaoExistir();
+        this(arquivo, false);
+    }
+
+    /**
+     * @param arquivo caminho do CSV (null usa o caminho padrão)
+     * @param journal true para gravar mutações de forma incremental no journal
+     */
+    public FileStorage(Path arquivo, boolean journal) {
+        this(arquivo, journal, 0);
+    }
+
+    /**
+     * Layout segmentado: {@code arquivo} passa a ser o prefixo do manifesto
+     * ({@code musicas.csv.manifesto}) e dos segmentos ({@code musicas.csv.seg000}, ...).
+     * Um {@code musicas.csv} pré-existente é migrado na primeira carga.
+     *
+     * @param segmentos quantidade de segmentos de um catálogo novo (um manifesto existente prevalece)
+     */
+    public FileStorage(Path arquivo, int segmentos) {
+        this(arquivo, false, segmentos);
+        if (segmentos <= 0) throw new IllegalArgumentException("A quantidade de segmentos deve ser positiva.");
+    }
+
+    private FileStorage(Path arquivo, boolean journal, int segmentos) {
+        this.arquivo = (arquivo != null) ? arquivo : CAMINHO_PADRAO;
+        this.journal = journal;
+        this.segmentado = segmentos > 0 ? new CatalogoSegmentado(this.arquivo, segmentos) : null;
+        this.binario = this.arquivo.getFileName() != null
+                && this.arquivo.getFileName().toString().endsWith(CatalogoBinario.EXTENSAO);
+        this.arquivoJournal = Paths.get(this.arquivo + ".journal");
+        this.arquivoJournalCompactando = Paths.get(this.arquivo + ".journal.old");
         // A criação do arquivo só deve ocorrer no momento de SALVAR,
         // não na inicialização (o que quebrava o teste 'deveRetornarListaVaziaSeArquivoNaoExistir').
     }
@@ -33,50 +132,67 @@ public class FileStorage {
         this(null);
     }
 
-    private void criarArquivoSeNaoExistir() {
-        try {
-            if (arquivo.getParent() != null && !Files.exists(arquivo.getParent())) {
-                Files.createDirectories(arquivo.getParent());
-            }
-            if (!Files.exists(arquivo)) {
-                Files.createFile(arquivo);
-                System.out.printf("[FileStorage] Criado novo arquivo CSV em: %s%n", arquivo.toAbsolutePath());
-            } else {
-                System.out.printf("[FileStorage] Arquivo CSV existente detectado em: %s%n", arquivo.toAbsolutePath());
-            }
-        } catch (IOException e) {
-            System.err.println("Falha ao criar arquivo ou diretório: " + e.getMessage());
-        }
+    /** Indica se este storage aceita mutações incrementais via {@link #registrar(List)}. */
+    public boolean isIncremental() {
+        return journal || segmentado != null;
+    }
+
+    /** Cria o diretório do arquivo uma única vez por instância. */
+    private void garantirDiretorio() throws IOException {
+        if (diretorioPronto) return;
+        if (arquivo.getParent() != null) Files.createDirectories(arquivo.getParent());
+        diretorioPronto = true;
     }
 
     public List<Musica> carregar() {
+        if (segmentado != null) return segmentado.carregar();
+        if (!journal) return carregarSnapshot();
+
+        synchronized (journalLock) {
+            aguardarCompactacao();
+            Map<UUID, Musica> porId = new LinkedHashMap<>();
+            for (Musica m : carregarSnapshot()) porId.put(m.getId(), m);
+            // O log em compactação (se sobrou de uma execução interrompida) vem antes do atual.
+            // Reaplicar registros já incorporados ao snapshot é inofensivo: o replay é idempotente.
+            reaplicarJournal(arquivoJournalCompactando, porId);
+            verificarCauda();
+            registrosNoJournal = reaplicarJournal(arquivoJournal, porId);
+            return new ArrayList<>(porId.values());
+        }
+    }
+
+    private List<Musica> carregarSnapshot() {
         List<Musica> lista = new ArrayList<>();
         // Esta verificação agora funciona corretamente, pois o construtor não cria mais o arquivo.
         if (!Files.exists(arquivo) || arquivo.toFile().length() == 0) return lista;
 
-        try {
-            List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
-            for (String ln : linhas) {
-                if (ln == null || ln.isBlank()) continue;
-
-                String[] parts = splitCsvLine(ln);
-                if (parts.length < 6) {
-                    System.err.println("Linha incompleta ignorada: " + ln);
-                    continue;
-                }
+        if (binario) {
+            try {
+                // Sem mapear: o snapshot precisa poder ser substituído logo depois (no Windows,
+                // um arquivo mapeado não pode ser renomeado por cima)
+                return CatalogoBinario.ler(arquivo).comoLista();
+            } catch (IOException e) {
+                System.err.println("Falha ao ler catálogo binário: " + e.getMessage());
+                return lista;
+            }
+        }
 
-                try {
-                    UUID id = UUID.fromString(parts[0]);
-                    String titulo = unescape(parts[1]);
-                    String artista = unescape(parts[2]);
-                    String album = unescape(parts[3]);
-                    String genero = unescape(parts[4]);
-                    int duracao = Integer.parseInt(parts[5]);
-
-                    lista.add(new Musica(id, titulo, artista, album, genero, duracao));
-                } catch (Exception e) {
-                    System.err.println("Linha inválida ignorada: " + ln + " -> " + e.getMessage());
-                }
+        // Arquivos grandes são divididos em faixas e lidos em paralelo
+        if (CarregadorParalelo.compensa(arquivo.toFile().length())) {
+            try {
+                return CarregadorParalelo.carregar(arquivo);
+            } catch (IOException e) {
+                System.err.println("Falha na carga paralela, lendo sequencialmente: " + e.getMessage());
+            }
+        }
+
+        // Leitura em streaming: o arquivo nunca é carregado inteiro como lista de Strings
+        try (LeitorCsv leitor = abrirLeitor(arquivo)) {
+            while (leitor.proximaLinha()) {
+                if (leitor.linhaEmBranco()) continue;
+
+                Musica m = leitor.decodificarMusica(0);
+                if (m != null) lista.add(m);
             }
         } catch (IOException e) {
             System.err.println("Falha ao ler arquivo: " + e.getMessage());
@@ -88,85 +204,305 @@ public class FileStorage {
     public void salvar(List<Musica> musicas) {
         if (musicas == null) return;
 
-        // ADICIONADO: A verificação/criação do arquivo foi movida para cá.
-        criarArquivoSeNaoExistir();
+        if (segmentado != null) {
+            segmentado.salvar(musicas);
+            return;
+        }
+        if (!journal) {
+            salvarSnapshot(musicas);
+            return;
+        }
+
+        // Snapshot completo: o journal passa a ser redundante e é descartado.
+        synchronized (journalLock) {
+            aguardarCompactacao();
+            salvarSnapshot(musicas);
+            try {
+                Files.deleteIfExists(arquivoJournal);
+                Files.deleteIfExists(arquivoJournalCompactando);
+                registrosNoJournal = 0;
+            } catch (IOException e) {
+                System.err.println("Falha ao descartar journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void salvarSnapshot(List<Musica> musicas) {
+        synchronized (snapshotLock) {
+            try {
+                substituirAtomicamente(musicas);
+                System.out.println("[FileStorage] Arquivo salvo com sucesso em: " + arquivo.toAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Falha ao salvar arquivo: " + e.getMessage());
+            }
+        }
+    }
+
+    private void substituirAtomicamente(Collection<Musica> musicas) throws IOException {
+        garantirDiretorio();
+        substituirAtomicamente(arquivo, temporario -> gravarSnapshot(temporario, musicas));
+    }
+
+    /** Escreve o conteúdo completo de um arquivo no caminho recebido. */
+    @FunctionalInterface
+    interface GravacaoArquivo {
+        void gravar(Path temporario) throws IOException;
+    }
 
+    /** Grava num temporário, faz fsync e renomeia sobre o destino. */
+    static void substituirAtomicamente(Path destino, GravacaoArquivo gravacao) throws IOException {
+        Path temporario = Paths.get(destino + ".tmp");
+        gravacao.gravar(temporario);
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
         try {
-            List<String> linhas = new ArrayList<>();
-            for (Musica m : musicas) {
-                linhas.add(String.join(";",
-                        m.getId().toString(),
-                        escape(m.getTitulo()),
-                        escape(m.getArtista()),
-                        escape(m.getAlbum()),
-                        escape(m.getGenero()),
-                        String.valueOf(m.getDuracaoSegundos())
-                ));
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+        sincronizarDiretorio(destino);
+    }
+
+    /** Torna a renomeação durável. Nem todo sistema permite abrir um diretório (ex.: Windows). */
+    private static void sincronizarDiretorio(Path destino) {
+        Path dir = destino.toAbsolutePath().getParent();
+        if (dir == null) return;
+        try (FileChannel canal = FileChannel.open(dir, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException | UnsupportedOperationException ignorada) {
+            // best effort
+        }
+    }
+
+    private void gravarSnapshot(Path destino, Collection<Musica> musicas) throws IOException {
+        if (binario) CatalogoBinario.gravar(destino, musicas);
+        else Files.write(destino, paraLinhas(musicas), StandardCharsets.UTF_8);
+    }
+
+    // ======== JOURNAL ========
+
+    /**
+     * Anexa as mutações ao journal (no modo segmentado, reescreve só os segmentos afetados). O custo é proporcional ao tamanho da mudança,
+     * não do catálogo. Ao atingir {@value #LIMITE_COMPACTACAO} registros, o log é
+     * rotacionado e compactado em segundo plano.
+     */
+    public void registrar(List<Mutacao> mutacoes) {
+        if (segmentado != null) {
+            if (mutacoes != null && !mutacoes.isEmpty()) segmentado.registrar(mutacoes);
+            return;
+        }
+        if (!journal) throw new IllegalStateException("Journal não está ativo para " + arquivo);
+        if (mutacoes == null || mutacoes.isEmpty()) return;
+
+        StringBuilder lote = new StringBuilder();
+        for (Mutacao mt : mutacoes) {
+            lote.append(switch (mt.tipo()) {
+                case INCLUSAO -> OP_INCLUSAO + ";" + paraLinha(mt.musica());
+                case EDICAO -> OP_EDICAO + ";" + paraLinha(mt.musica());
+                case REMOCAO -> OP_REMOCAO + ";" + mt.id();
+            }).append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(lote.toString());
+
+        synchronized (journalLock) {
+            try {
+                garantirDiretorio();
+                verificarCauda();
+                try (FileChannel canal = FileChannel.open(arquivoJournal,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    while (bytes.hasRemaining()) canal.write(bytes);
+                    // O lote só conta como gravado depois de chegar ao disco
+                    canal.force(false);
+                }
+                registrosNoJournal += mutacoes.size();
+            } catch (IOException e) {
+                // Pode ter sobrado uma linha parcial: a próxima gravação confere a cauda de novo
+                caudaVerificada = false;
+                System.err.println("Falha ao gravar journal: " + e.getMessage());
+                return;
             }
-            Files.write(arquivo, linhas, StandardCharsets.UTF_8);
-            System.out.println("[FileStorage] Arquivo salvo com sucesso em: " + arquivo.toAbsolutePath());
+            if (registrosNoJournal >= LIMITE_COMPACTACAO) iniciarCompactacao();
+        }
+    }
+
+    /**
+     * Corta uma última linha sem {@code '\n'} (queda no meio de um anexo). Sem isso o
+     * próximo lote seria emendado nela e o primeiro registro do lote viraria uma linha
+     * inválida, descartada no replay. Chamado sempre com {@code journalLock}.
+     */
+    private void verificarCauda() {
+        if (caudaVerificada) return;
+        try {
+            if (Files.exists(arquivoJournal)) cortarLinhaIncompleta(arquivoJournal);
+            caudaVerificada = true;
         } catch (IOException e) {
-            System.err.println("Falha ao salvar arquivo: " + e.getMessage());
+            System.err.println("Falha ao verificar o fim do journal: " + e.getMessage());
         }
     }
 
-    // ======== ESCAPE/UNESCAPE ========
+    /** Trunca o arquivo logo após o último {@code '\n'} (ou em zero, se não houver nenhum). */
+    private static void cortarLinhaIncompleta(Path log) throws IOException {
+        try (FileChannel canal = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fim = canal.size();
+            ByteBuffer bloco = ByteBuffer.allocate(4096);
+            long inicio = fim;
+            while (inicio > 0) {
+                int tamanho = (int) Math.min(bloco.capacity(), inicio);
+                inicio -= tamanho;
+                bloco.clear().limit(tamanho);
+                while (bloco.hasRemaining()) {
+                    if (canal.read(bloco, inicio + bloco.position()) < 0) break;
+                }
+                for (int i = tamanho - 1; i >= 0; i--) {
+                    if (bloco.get(i) != '\n') continue;
+                    long corte = inicio + i + 1;
+                    if (corte < fim) {
+                        canal.truncate(corte);
+                        canal.force(false);
+                        System.err.println("Journal com última linha incompleta; " + (fim - corte) + " bytes descartados.");
+                    }
+                    return;
+                }
+            }
+            if (fim > 0) {
+                canal.truncate(0);
+                canal.force(false);
+            }
+        }
+    }
 
-    private static String escape(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace(";", "\\;")
-                .replace("\n", "\\n");
+    /** Força a compactação do journal e aguarda sua conclusão. */
+    public void compactar() {
+        if (!journal) return;
+        synchronized (journalLock) {
+            aguardarCompactacao();
+            iniciarCompactacao();
+            aguardarCompactacao();
+        }
     }
 
-    private static String unescape(String s) {
-        if (s == null) return "";
-        StringBuilder out = new StringBuilder();
-        boolean esc = false;
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (esc) {
-                switch (c) {
-                    case 'n' -> out.append('\n'); // \n vira nova linha
-                    case '\\' -> out.append('\\'); // \\ vira \
-                    case ';' -> out.append(';');   // \; vira ;
-                    default -> out.append(c);       // mantém qualquer outro
-                }
-                esc = false;
-            } else if (c == '\\') {
-                esc = true;
-            } else {
-                out.append(c);
+    /**
+     * Rotaciona o journal atual para {@code .journal.old} e agenda a geração do
+     * novo snapshot. Novas mutações seguem para um journal vazio enquanto isso.
+     * Chamado sempre com {@code journalLock}.
+     */
+    private void iniciarCompactacao() {
+        if (compactacaoEmAndamento != null && !compactacaoEmAndamento.isDone()) return;
+        try {
+            // Um .old remanescente (execução interrompida) é compactado antes de rotacionar de novo.
+            if (!Files.exists(arquivoJournalCompactando)) {
+                if (!Files.exists(arquivoJournal)) return;
+                Files.move(arquivoJournal, arquivoJournalCompactando, StandardCopyOption.ATOMIC_MOVE);
+                registrosNoJournal = 0;
+                caudaVerificada = true; // o próximo anexo cria um journal novo
             }
+        } catch (IOException e) {
+            System.err.println("Falha ao rotacionar journal: " + e.getMessage());
+            return;
         }
-        return out.toString();
-    }
-
-
-    // ======== SPLIT CSV ========
-
-    private static String[] splitCsvLine(String line) {
-        List<String> parts = new ArrayList<>();
-        StringBuilder cur = new StringBuilder();
-        boolean esc = false;
-        for (int i = 0; i < line.length(); i++) {
-            char c = line.charAt(i);
-            if (esc) {
-                cur.append(c);
-                esc = false;
-            } else if (c == '\\') {
-                esc = true;
-                // CORREÇÃO: A barra invertida (o caractere de escape)
-                // deve ser mantida para ser processada pelo unescape().
-                cur.append(c);
-            } else if (c == ';') {
-                parts.add(cur.toString());
-                cur.setLength(0);
-            } else {
-                cur.append(c);
+        if (compactador == null) {
+            compactador = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "FileStorage-compactador");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        compactacaoEmAndamento = compactador.submit(this::compactarJournalRotacionado);
+    }
+
+    /**
+     * Gera um snapshot a partir do snapshot atual + journal rotacionado.
+     * Só este método toca no snapshot e no .old enquanto está em andamento:
+     * {@link #salvar(List)} e {@link #carregar()} aguardam sua conclusão.
+     */
+    private void compactarJournalRotacionado() {
+        Map<UUID, Musica> porId = new LinkedHashMap<>();
+        for (Musica m : carregarSnapshot()) porId.put(m.getId(), m);
+        reaplicarJournal(arquivoJournalCompactando, porId);
+
+        try {
+            substituirAtomicamente(porId.values());
+            Files.deleteIfExists(arquivoJournalCompactando);
+            System.out.println("[FileStorage] Journal compactado em: " + arquivo.toAbsolutePath());
+        } catch (IOException e) {
+            // O .old permanece e será reaplicado no próximo carregamento.
+            System.err.println("Falha ao compactar journal: " + e.getMessage());
+        }
+    }
+
+    private void aguardarCompactacao() {
+        if (compactacaoEmAndamento == null) return;
+        try {
+            compactacaoEmAndamento.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Falha na compactação do journal: " + e.getCause());
+        }
+        compactacaoEmAndamento = null;
+    }
+
+    /** Reaplica um journal sobre o mapa e devolve a quantidade de registros lidos. */
+    private static int reaplicarJournal(Path log, Map<UUID, Musica> porId) {
+        if (!Files.exists(log)) return 0;
+        int registros = 0;
+        try (LeitorCsv leitor = abrirLeitor(log)) {
+            while (leitor.proximaLinha()) {
+                if (leitor.linhaEmBranco()) continue;
+                // Formato: <op>;<campos>. Uma última linha parcial (queda durante a gravação) é descartada.
+                char op = leitor.charNaLinha(1) == ';' ? leitor.charNaLinha(0) : '\0';
+                switch (op) {
+                    case OP_INCLUSAO, OP_EDICAO -> {
+                        Musica m = leitor.decodificarMusica(2);
+                        if (m != null) porId.put(m.getId(), m);
+                    }
+                    case OP_REMOCAO -> {
+                        try {
+                            porId.remove(leitor.decodificarUuid(2));
+                        } catch (Exception e) {
+                            System.err.println("Registro de journal inválido ignorado: " + leitor.linhaAtual());
+                        }
+                    }
+                    default -> System.err.println("Registro de journal inválido ignorado: " + leitor.linhaAtual());
+                }
+                registros++;
             }
+        } catch (IOException e) {
+            System.err.println("Falha ao ler journal: " + e.getMessage());
         }
-        parts.add(cur.toString());
-        return parts.toArray(new String[0]);
+        return registros;
+    }
+
+    // ======== CODIFICAÇÃO DE LINHAS ========
+
+    static LeitorCsv abrirLeitor(Path caminho) throws IOException {
+        return new LeitorCsv(new InputStreamReader(Files.newInputStream(caminho), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> paraLinhas(Iterable<Musica> musicas) {
+        List<String> linhas = new ArrayList<>();
+        for (Musica m : musicas) linhas.add(paraLinha(m));
+        return linhas;
+    }
+
+    static String paraLinha(Musica m) {
+        return String.join(";",
+                m.getId().toString(),
+                escape(m.getTitulo()),
+                escape(m.getArtista()),
+                escape(m.getAlbum()),
+                escape(m.getGenero()),
+                String.valueOf(m.getDuracaoSegundos())
+        );
+    }
+
+    // ======== ESCAPE (o unescape fica em LeitorCsv) ========
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\")
+                .replace(";", "\\;")
+                .replace("\n", "\\n");
     }
 }
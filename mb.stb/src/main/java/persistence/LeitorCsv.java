@@ -0,0 +1,219 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.UUID;
+
+import model.Musica;
+
+/**
+ * Leitor de catálogo CSV em streaming, com buffers reaproveitados.
+ * <p>
+ * Lê o arquivo em blocos por um {@code char[]} fixo, monta cada linha num buffer
+ * reutilizável e decodifica os campos ali mesmo: escapes são resolvidos direto no
+ * buffer de campo, e o UUID e a duração são convertidos sem criar Strings
+ * intermediárias. As únicas Strings alocadas por linha são os quatro campos de texto.
+ * </p>
+ * Mesmas regras de {@link FileStorage}: delimitador ';' e escapes {@code \;},
+ * {@code \\} e {@code \n}; colunas além da sexta são ignoradas.
+ */
+final class LeitorCsv implements Closeable {
+
+    private static final int TAMANHO_BLOCO = 1 << 16;
+
+    private final Reader entrada;
+    private final char[] bloco = new char[TAMANHO_BLOCO];
+    private int posBloco;
+    private int fimBloco;
+
+    private char[] linha = new char[256];
+    private int tamanhoLinha;
+
+    private char[] campo = new char[256];
+    private int tamanhoCampo;
+
+    /** Posição logo após o último campo lido por {@link #lerCampo(int)}; -1 no fim da linha. */
+    private int proximoCampo;
+
+    LeitorCsv(Reader entrada) {
+        this.entrada = entrada;
+    }
+
+    /** Avança para a próxima linha; devolve false no fim do arquivo. */
+    boolean proximaLinha() throws IOException {
+        tamanhoLinha = 0;
+        boolean leuAlgo = false;
+        while (true) {
+            if (posBloco == fimBloco) {
+                fimBloco = entrada.read(bloco, 0, bloco.length);
+                posBloco = 0;
+                if (fimBloco <= 0) {
+                    fimBloco = 0;
+                    return leuAlgo;
+                }
+            }
+            leuAlgo = true;
+            int ini = posBloco;
+            while (posBloco < fimBloco && bloco[posBloco] != '\n') posBloco++;
+            acrescentarNaLinha(ini, posBloco);
+            if (posBloco < fimBloco) {
+                posBloco++; // consome o '\n'
+                if (tamanhoLinha > 0 && linha[tamanhoLinha - 1] == '\r') tamanhoLinha--;
+                return true;
+            }
+        }
+    }
+
+    /** Linha atual em branco (vazia ou só espaços)? */
+    boolean linhaEmBranco() {
+        for (int i = 0; i < tamanhoLinha; i++) {
+            if (!Character.isWhitespace(linha[i])) return false;
+        }
+        return true;
+    }
+
+    char charNaLinha(int i) {
+        return i < tamanhoLinha ? linha[i] : '\0';
+    }
+
+    String linhaAtual() {
+        return new String(linha, 0, tamanhoLinha);
+    }
+
+    /**
+     * Decodifica uma música a partir da coluna que começa em {@code inicio}.
+     * Linhas inválidas são registradas no log e devolvem null.
+     */
+    Musica decodificarMusica(int inicio) {
+        try {
+            int fimId = fimDoCampo(inicio);
+            UUID id = lerUuid(inicio, fimId);
+            if (fimId >= tamanhoLinha) return incompleta();
+
+            String titulo = lerCampo(fimId + 1);
+            String artista = proximoCampo < 0 ? null : lerCampo(proximoCampo);
+            String album = proximoCampo < 0 ? null : lerCampo(proximoCampo);
+            String genero = proximoCampo < 0 ? null : lerCampo(proximoCampo);
+            if (proximoCampo < 0) return incompleta();
+            int duracao = lerInt(proximoCampo, fimDoCampo(proximoCampo));
+
+            return new Musica(id, titulo, artista, album, genero, duracao);
+        } catch (Exception e) {
+            System.err.println("Linha inválida ignorada: " + linhaAtual() + " -> " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Lê a coluna iniciada em {@code inicio} como UUID (usado nos registros de remoção do journal). */
+    UUID decodificarUuid(int inicio) {
+        return lerUuid(inicio, fimDoCampo(inicio));
+    }
+
+    /** Lê os caracteres [ini, fim) da linha como número hexadecimal. */
+    long decodificarHex(int ini, int fim) {
+        if (fim > tamanhoLinha) throw new IllegalArgumentException("Linha curta demais: " + linhaAtual());
+        return hex(ini, fim);
+    }
+
+    @Override
+    public void close() throws IOException {
+        entrada.close();
+    }
+
+    // ======== DECODIFICAÇÃO NO BUFFER ========
+
+    private Musica incompleta() {
+        System.err.println("Linha incompleta ignorada: " + linhaAtual());
+        return null;
+    }
+
+    /** Índice do ';' que encerra o campo (respeitando escapes) ou o fim da linha. */
+    private int fimDoCampo(int ini) {
+        boolean esc = false;
+        for (int i = ini; i < tamanhoLinha; i++) {
+            char c = linha[i];
+            if (esc) esc = false;
+            else if (c == '\\') esc = true;
+            else if (c == ';') return i;
+        }
+        return tamanhoLinha;
+    }
+
+    /** Lê um campo de texto resolvendo os escapes no buffer de campo. */
+    private String lerCampo(int ini) {
+        tamanhoCampo = 0;
+        boolean esc = false;
+        int i = ini;
+        for (; i < tamanhoLinha; i++) {
+            char c = linha[i];
+            if (esc) {
+                acrescentarNoCampo(c == 'n' ? '\n' : c); // \n vira nova linha; \\ e \; viram o próprio caractere
+                esc = false;
+            } else if (c == '\\') {
+                esc = true;
+            } else if (c == ';') {
+                break;
+            } else {
+                acrescentarNoCampo(c);
+            }
+        }
+        proximoCampo = i < tamanhoLinha ? i + 1 : -1;
+        return tamanhoCampo == 0 ? "" : new String(campo, 0, tamanhoCampo);
+    }
+
+    /** UUID canônico (8-4-4-4-12) convertido direto dos caracteres; outros formatos caem no parser do JDK. */
+    private UUID lerUuid(int ini, int fim) {
+        if (fim - ini != 36 || linha[ini + 8] != '-' || linha[ini + 13] != '-'
+                || linha[ini + 18] != '-' || linha[ini + 23] != '-') {
+            return UUID.fromString(new String(linha, ini, fim - ini));
+        }
+        long msb = hex(ini, ini + 8);
+        msb = (msb << 16) | hex(ini + 9, ini + 13);
+        msb = (msb << 16) | hex(ini + 14, ini + 18);
+        long lsb = hex(ini + 19, ini + 23);
+        lsb = (lsb << 48) | hex(ini + 24, ini + 36);
+        return new UUID(msb, lsb);
+    }
+
+    private long hex(int ini, int fim) {
+        long v = 0;
+        for (int i = ini; i < fim; i++) {
+            int d = Character.digit(linha[i], 16);
+            if (d < 0) throw new IllegalArgumentException("UUID inválido: " + new String(linha, ini, fim - ini));
+            v = (v << 4) | d;
+        }
+        return v;
+    }
+
+    /** Mesmas regras de {@link Integer#parseInt(String)}, sem criar a String. */
+    private int lerInt(int ini, int fim) {
+        if (ini >= fim) throw new NumberFormatException("Duração vazia");
+        boolean negativo = linha[ini] == '-';
+        int i = (negativo || linha[ini] == '+') ? ini + 1 : ini;
+        if (i == fim) throw new NumberFormatException("Duração inválida: " + new String(linha, ini, fim - ini));
+        long v = 0;
+        for (; i < fim; i++) {
+            int d = Character.digit(linha[i], 10);
+            if (d < 0) throw new NumberFormatException("Duração inválida: " + new String(linha, ini, fim - ini));
+            v = v * 10 + d;
+            if (v > (long) Integer.MAX_VALUE + 1) throw new NumberFormatException("Duração fora do intervalo");
+        }
+        v = negativo ? -v : v;
+        if (v > Integer.MAX_VALUE) throw new NumberFormatException("Duração fora do intervalo");
+        return (int) v;
+    }
+
+    private void acrescentarNaLinha(int ini, int fim) {
+        int n = fim - ini;
+        if (tamanhoLinha + n > linha.length) linha = Arrays.copyOf(linha, Math.max(linha.length * 2, tamanhoLinha + n));
+        System.arraycopy(bloco, ini, linha, tamanhoLinha, n);
+        tamanhoLinha += n;
+    }
+
+    private void acrescentarNoCampo(char c) {
+        if (tamanhoCampo == campo.length) campo = Arrays.copyOf(campo, campo.length * 2);
+        campo[tamanhoCampo++] = c;
+    }
+}
@@ -0,0 +1,30 @@
+package persistence;
+
+import java.util.UUID;
+
+import model.Musica;
+
+/**
+ * Alteração pontual no catálogo (inclusão, edição ou remoção).
+ * <p>
+ * Usada pela persistência incremental: em vez de reescrever o catálogo inteiro,
+ * cada mutação vira um pequeno registro no journal. {@link Musica} é imutável, então
+ * o registro guarda a própria instância sem risco de ela mudar depois.
+ * </p>
+ */
+public record Mutacao(Tipo tipo, UUID id, Musica musica) {
+
+    public enum Tipo { INCLUSAO, EDICAO, REMOCAO }
+
+    public static Mutacao inclusao(Musica m) {
+        return new Mutacao(Tipo.INCLUSAO, m.getId(), m);
+    }
+
+    public static Mutacao edicao(Musica m) {
+        return new Mutacao(Tipo.EDICAO, m.getId(), m);
+    }
+
+    public static Mutacao remocao(UUID id) {
+        return new Mutacao(Tipo.REMOCAO, id, null);
+    }
+}
@@ -0,0 +1,513 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import model.SenhaHash;
+import model.Usuario;
+
+/**
+ * Usuários em arquivo, com índice em disco por email.
+ * <p>
+ * Dois arquivos:
+ * <ul>
+ *   <li>{@code usuarios.dat} — journal só de acréscimo: cabeçalho {@code MBUS} + versão e,
+ *       para cada cadastro ou atualização, {@code [int tamanho][email][nome][hash da senha]}
+ *       (strings em UTF modificado de {@link DataOutputStream#writeUTF}). O último
+ *       registro de um email é o que vale. Arquivos da versão 1 podiam ter senhas em
+ *       claro; na primeira abertura eles são regravados uma vez, já com hash.</li>
+ *   <li>{@code usuarios.dat.idx} — tabela hash com endereçamento aberto: cabeçalho de
+ *       32 bytes e slots de 12 bytes {@code [int hash do email][long posição no .dat]},
+ *       posição 0 = vazio. Dobra de tamanho ao passar de metade ocupada.</li>
+ * </ul>
+ * Nada é carregado na abertura: um login lê alguns slots do índice e o registro do
+ * usuário, por leituras posicionais. Ao sondar o índice, o email é comparado nos bytes
+ * gravados; só o registro que confere é decodificado. O índice é derivado do journal; ele guarda até
+ * que posição do {@code .dat} já foi indexada (registros além disso são indexados ao
+ * abrir, e um registro incompleto no fim é descartado) e uma marca de fechamento
+ * limpo. Sem ela, ou sem o arquivo, o índice é reconstruído lendo o journal inteiro.
+ * </p>
+ * <p>
+ * Cada cadastro é sincronizado com o disco (fsync) antes de retornar; o índice não,
+ * já que pode ser refeito. Os métodos são sincronizados: uma instância por arquivo.
+ * </p>
+ */
+public class UsuarioStorage implements AutoCloseable {
+
+    /** Ao lado do catálogo, no mesmo diretório padrão do {@link FileStorage}. */
+    private static final Path CAMINHO_PADRAO = FileStorage.DIRETORIO_PADRAO.resolve("usuarios.dat");
+
+    private static final int MAGIC_DADOS = 0x4D425553;  // "MBUS"
+    private static final int MAGIC_INDICE = 0x4D425549; // "MBUI"
+    /** Versão 2: todas as senhas do journal estão em hash. */
+    private static final int VERSAO_DADOS = 2;
+    private static final int VERSAO_SENHAS_EM_CLARO = 1;
+    private static final int VERSAO_INDICE = 1;
+    private static final int CABECALHO_DADOS = 8;
+    /** magic, versão, capacidade, quantidade, bytes indexados (long), fechado limpo, reservado. */
+    private static final int CABECALHO_INDICE = 32;
+    private static final int TAMANHO_SLOT = 12;
+    private static final int CAPACIDADE_INICIAL = 1024;
+
+    private final Path arquivo;
+    private final Path arquivoIndice;
+
+    private FileChannel dados;
+    private FileChannel indice;
+    private int capacidade;
+    private int quantidade;
+    private long bytesIndexados;
+
+    public UsuarioStorage(Path arquivo) {
+        this.arquivo = (arquivo != null) ? arquivo : CAMINHO_PADRAO;
+        this.arquivoIndice = Paths.get(this.arquivo + ".idx");
+    }
+
+    public UsuarioStorage() {
+        this(null);
+    }
+
+    // ======================== Operações ========================
+
+    /** Lê só o registro do email, se existir. */
+    public synchronized Optional<Usuario> buscar(String email) {
+        if (email == null) return Optional.empty();
+        try {
+            abrir();
+            long pos = localizar(Usuario.normalizarEmail(email));
+            return pos == 0 ? Optional.empty() : Optional.of(lerUsuario(pos));
+        } catch (IOException e) {
+            System.err.println("Falha ao ler usuário: " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public synchronized boolean existe(String email) {
+        if (email == null) return false;
+        try {
+            abrir();
+            return localizar(Usuario.normalizarEmail(email)) != 0;
+        } catch (IOException e) {
+            System.err.println("Falha ao ler índice de usuários: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Anexa o usuário ao journal se o email ainda não existir.
+     *
+     * @return false se o email já existe ou se a gravação falhou
+     */
+    public synchronized boolean inserirSeAusente(Usuario u) {
+        if (u == null) return false;
+        try {
+            abrir();
+            if (localizar(u.getEmail()) != 0) return false;
+            indexar(u.getEmail(), anexar(u));
+            bytesIndexados = dados.size();
+            gravarCabecalhoIndice(false);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Falha ao gravar usuário: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Todos os usuários, na ordem do primeiro cadastro. Lê o journal inteiro. */
+    public synchronized List<Usuario> listarTodos() {
+        Map<String, Usuario> porEmail = new LinkedHashMap<>();
+        try {
+            abrir();
+            varrer(CABECALHO_DADOS, (pos, corpo) -> {
+                Usuario u = decodificar(corpo);
+                porEmail.put(u.getEmail(), u);
+            });
+        } catch (IOException e) {
+            System.err.println("Falha ao ler usuários: " + e.getMessage());
+        }
+        return new ArrayList<>(porEmail.values());
+    }
+
+    public synchronized int quantidade() {
+        try {
+            abrir();
+            return quantidade;
+        } catch (IOException e) {
+            System.err.println("Falha ao ler índice de usuários: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /** Apaga os dois arquivos. */
+    public synchronized void limpar() {
+        fecharCanais();
+        try {
+            Files.deleteIfExists(arquivoIndice);
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            System.err.println("Falha ao apagar usuários: " + e.getMessage());
+        }
+    }
+
+    /** Marca o índice como consistente, para que a próxima abertura não o reconstrua. */
+    @Override
+    public synchronized void close() {
+        if (indice != null) {
+            try {
+                gravarCabecalhoIndice(true);
+                indice.force(true);
+            } catch (IOException e) {
+                System.err.println("Falha ao fechar índice de usuários: " + e.getMessage());
+            }
+        }
+        fecharCanais();
+    }
+
+    // ======================== Abertura ========================
+
+    private void abrir() throws IOException {
+        if (dados != null) return;
+        if (arquivo.getParent() != null) Files.createDirectories(arquivo.getParent());
+        dados = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (dados.size() == 0) {
+                escreverTudo(dados, cabecalhoDados(), 0);
+                dados.force(true);
+            } else {
+                ByteBuffer cab = lerTudo(dados, CABECALHO_DADOS, 0);
+                if (cab.getInt() != MAGIC_DADOS) throw new IOException("Arquivo não é um cadastro de usuários: " + arquivo);
+                int versao = cab.getInt();
+                if (versao == VERSAO_SENHAS_EM_CLARO) migrarSenhasEmClaro();
+                else if (versao != VERSAO_DADOS) throw new IOException("Versão de cadastro de usuários não suportada");
+            }
+            if (!abrirIndice()) reconstruirIndice();
+            indexarCauda();
+            gravarCabecalhoIndice(false);
+            indice.force(false);
+        } catch (IOException e) {
+            fecharCanais();
+            throw e;
+        }
+    }
+
+    /** @return false se o índice não existe ou não é confiável */
+    private boolean abrirIndice() throws IOException {
+        if (!Files.exists(arquivoIndice) || Files.size(arquivoIndice) < CABECALHO_INDICE) return false;
+        indice = FileChannel.open(arquivoIndice, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer cab = lerTudo(indice, CABECALHO_INDICE, 0);
+        boolean valido = cab.getInt() == MAGIC_INDICE && cab.getInt() == VERSAO_INDICE;
+        capacidade = cab.getInt();
+        quantidade = cab.getInt();
+        bytesIndexados = cab.getLong();
+        boolean limpo = cab.getInt() == 1;
+        valido &= limpo && Integer.bitCount(capacidade) == 1
+                && indice.size() == CABECALHO_INDICE + (long) capacidade * TAMANHO_SLOT
+                && bytesIndexados >= CABECALHO_DADOS && bytesIndexados <= dados.size();
+        if (!valido) {
+            indice.close();
+            indice = null;
+        }
+        return valido;
+    }
+
+    /**
+     * Regrava um journal da versão 1 com o último registro de cada email e a senha em
+     * hash, para que nenhuma leitura precise gerar hash. O índice antigo apontava para as
+     * posições antigas e é descartado; um registro incompleto no fim se perde, como na
+     * abertura normal.
+     */
+    private void migrarSenhasEmClaro() throws IOException {
+        Map<String, Usuario> ultimos = new LinkedHashMap<>();
+        varrer(CABECALHO_DADOS, (pos, corpo) -> {
+            Usuario u = decodificarComSenhaEmClaro(corpo);
+            ultimos.put(u.getEmail(), u);
+        });
+        dados.close();
+        dados = null;
+        FileStorage.substituirAtomicamente(arquivo, tmp -> {
+            try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long pos = escreverTudo(canal, cabecalhoDados(), 0);
+                for (Usuario u : ultimos.values()) pos = escreverTudo(canal, registro(u), pos);
+            }
+        });
+        Files.deleteIfExists(arquivoIndice);
+        dados = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        System.out.println("[UsuarioStorage] " + ultimos.size() + " usuário(s) migrados para senhas com hash em " + arquivo);
+    }
+
+    /** Índice novo a partir do journal inteiro (primeira abertura ou após uma queda). */
+    private void reconstruirIndice() throws IOException {
+        Map<String, Long> ultimas = new LinkedHashMap<>();
+        long fim = varrer(CABECALHO_DADOS, (pos, corpo) -> ultimas.put(emailDe(corpo), pos));
+        truncarSeNecessario(fim);
+        int cap = CAPACIDADE_INICIAL;
+        while (cap < ultimas.size() * 2) cap <<= 1;
+        bytesIndexados = fim;
+        int[] hashes = new int[ultimas.size()];
+        long[] posicoes = new long[ultimas.size()];
+        int n = 0;
+        for (Map.Entry<String, Long> e : ultimas.entrySet()) {
+            hashes[n] = e.getKey().hashCode();
+            posicoes[n++] = e.getValue();
+        }
+        recriarIndice(cap, hashes, posicoes, n);
+    }
+
+    /** Registros anexados depois da última atualização do índice. */
+    private void indexarCauda() throws IOException {
+        if (bytesIndexados >= dados.size()) return;
+        Map<String, Long> novos = new LinkedHashMap<>();
+        long fim = varrer(bytesIndexados, (pos, corpo) -> novos.put(emailDe(corpo), pos));
+        truncarSeNecessario(fim);
+        for (Map.Entry<String, Long> e : novos.entrySet()) indexar(e.getKey(), e.getValue());
+        bytesIndexados = fim;
+    }
+
+    /** Descarta um registro incompleto no fim (gravação interrompida). */
+    private void truncarSeNecessario(long fimValido) throws IOException {
+        if (dados.size() > fimValido) {
+            System.err.println("Registro de usuário incompleto descartado no fim de " + arquivo);
+            dados.truncate(fimValido);
+            dados.force(true);
+        }
+    }
+
+    // ======================== Journal ========================
+
+    private long anexar(Usuario u) throws IOException {
+        long pos = dados.size();
+        escreverTudo(dados, registro(u), pos);
+        dados.force(false);
+        return pos;
+    }
+
+    private static ByteBuffer registro(Usuario u) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeUTF(u.getEmail());
+            out.writeUTF(u.getNome());
+            out.writeUTF(u.getSenha());
+        }
+        ByteBuffer registro = ByteBuffer.wrap(bytes.toByteArray());
+        return registro.putInt(0, registro.capacity() - 4);
+    }
+
+    private static ByteBuffer cabecalhoDados() {
+        return ByteBuffer.allocate(CABECALHO_DADOS).putInt(MAGIC_DADOS).putInt(VERSAO_DADOS).flip();
+    }
+
+    private Usuario lerUsuario(long pos) throws IOException {
+        int tamanho = lerTudo(dados, 4, pos).getInt();
+        return decodificar(lerTudo(dados, tamanho, pos + 4).array());
+    }
+
+    /** O email, primeiro campo do registro, sem ler o resto. */
+    private static String emailDe(byte[] corpo) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(corpo)).readUTF();
+    }
+
+    /** Email na forma gravada ({@code writeUTF}: tamanho + bytes), para comparar sem decodificar. */
+    private static byte[] codificarEmail(String email) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(email.length() + 2);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(email);
+        }
+        return bytes.toByteArray();
+    }
+
+    /** Compara o início do registro com o email codificado; o tamanho no prefixo evita falsos positivos. */
+    private boolean registroTemEmail(long pos, byte[] email) throws IOException {
+        if (pos + 4 + email.length > dados.size()) return false;
+        return Arrays.equals(lerTudo(dados, email.length, pos + 4).array(), email);
+    }
+
+    private static Usuario decodificar(byte[] corpo) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(corpo));
+        String email = in.readUTF();
+        String nome = in.readUTF();
+        String senha = in.readUTF();
+        if (!SenhaHash.ehCodificada(senha)) throw new IOException("Registro de usuário sem hash de senha: " + email);
+        return Usuario.comSenhaCodificada(nome, email, senha);
+    }
+
+    /** Só para a migração da versão 1: aceita senha em claro e gera o hash. */
+    private static Usuario decodificarComSenhaEmClaro(byte[] corpo) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(corpo));
+        String email = in.readUTF();
+        String nome = in.readUTF();
+        String senha = in.readUTF();
+        return Usuario.comSenhaCodificada(nome, email, SenhaHash.ehCodificada(senha) ? senha : SenhaHash.gerar(senha));
+    }
+
+    @FunctionalInterface
+    private interface Visitante {
+        void registro(long posicao, byte[] corpo) throws IOException;
+    }
+
+    /** Lê os registros a partir de {@code inicio}; devolve a posição logo após o último completo. */
+    private long varrer(long inicio, Visitante visitante) throws IOException {
+        long fim = dados.size();
+        long pos = inicio;
+        InputStream canal = Channels.newInputStream(dados.position(inicio));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(canal, 64 * 1024));
+        while (pos + 4 <= fim) {
+            int tamanho = in.readInt();
+            if (tamanho <= 0 || pos + 4 + tamanho > fim) break;
+            byte[] corpo = new byte[tamanho];
+            try {
+                in.readFully(corpo);
+            } catch (EOFException e) {
+                break;
+            }
+            visitante.registro(pos, corpo);
+            pos += 4 + tamanho;
+        }
+        return pos;
+    }
+
+    // ======================== Índice ========================
+
+    /** @return a posição do registro do email no journal, ou 0 */
+    private long localizar(String email) throws IOException {
+        int hash = email.hashCode();
+        byte[] codificado = codificarEmail(email);
+        int mascara = capacidade - 1;
+        for (int i = espalhar(hash) & mascara; ; i = (i + 1) & mascara) {
+            ByteBuffer slot = lerTudo(indice, TAMANHO_SLOT, posicaoSlot(i));
+            int h = slot.getInt();
+            long pos = slot.getLong();
+            if (pos == 0) return 0;
+            if (h == hash && registroTemEmail(pos, codificado)) return pos;
+        }
+    }
+
+    /**
+     * Aponta o email para o registro; sobrescreve o slot se o email já estava indexado.
+     * O cabeçalho (quantidade e bytes indexados) fica a cargo de quem chama.
+     */
+    private void indexar(String email, long posRegistro) throws IOException {
+        if ((quantidade + 1) * 2L > capacidade) dobrarIndice();
+        int hash = email.hashCode();
+        byte[] codificado = codificarEmail(email);
+        int mascara = capacidade - 1;
+        int i = espalhar(hash) & mascara;
+        while (true) {
+            ByteBuffer slot = lerTudo(indice, TAMANHO_SLOT, posicaoSlot(i));
+            int h = slot.getInt();
+            long pos = slot.getLong();
+            if (pos == 0) {
+                quantidade++;
+                break;
+            }
+            if (h == hash && registroTemEmail(pos, codificado)) break;
+            i = (i + 1) & mascara;
+        }
+        escreverTudo(indice, ByteBuffer.allocate(TAMANHO_SLOT).putInt(hash).putLong(posRegistro).flip(), posicaoSlot(i));
+    }
+
+    /** Os slots já guardam o hash de cada email: redistribuir não lê o journal. */
+    private void dobrarIndice() throws IOException {
+        ByteBuffer atual = lerTudo(indice, capacidade * TAMANHO_SLOT, CABECALHO_INDICE);
+        int[] hashes = new int[quantidade];
+        long[] posicoes = new long[quantidade];
+        int n = 0;
+        for (int i = 0; i < capacidade; i++) {
+            long pos = atual.getLong(i * TAMANHO_SLOT + 4);
+            if (pos == 0) continue;
+            hashes[n] = atual.getInt(i * TAMANHO_SLOT);
+            posicoes[n++] = pos;
+        }
+        recriarIndice(capacidade * 2, hashes, posicoes, n);
+    }
+
+    /** Grava um índice novo com as {@code n} entradas dadas e troca o arquivo atomicamente. */
+    private void recriarIndice(int novaCapacidade, int[] hashes, long[] posicoes, int n) throws IOException {
+        if (indice != null) indice.close();
+        ByteBuffer tabela = ByteBuffer.allocate(novaCapacidade * TAMANHO_SLOT);
+        int mascara = novaCapacidade - 1;
+        for (int e = 0; e < n; e++) {
+            int i = espalhar(hashes[e]) & mascara;
+            while (tabela.getLong(i * TAMANHO_SLOT + 4) != 0) i = (i + 1) & mascara;
+            tabela.putInt(i * TAMANHO_SLOT, hashes[e]).putLong(i * TAMANHO_SLOT + 4, posicoes[e]);
+        }
+        capacidade = novaCapacidade;
+        quantidade = n;
+        FileStorage.substituirAtomicamente(arquivoIndice, tmp -> {
+            try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                escreverTudo(canal, cabecalhoIndice(false), 0);
+                escreverTudo(canal, tabela.clear(), CABECALHO_INDICE);
+            }
+        });
+        indice = FileChannel.open(arquivoIndice, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void gravarCabecalhoIndice(boolean limpo) throws IOException {
+        escreverTudo(indice, cabecalhoIndice(limpo), 0);
+    }
+
+    private ByteBuffer cabecalhoIndice(boolean limpo) {
+        return ByteBuffer.allocate(CABECALHO_INDICE)
+                .putInt(MAGIC_INDICE).putInt(VERSAO_INDICE).putInt(capacidade).putInt(quantidade)
+                .putLong(bytesIndexados).putInt(limpo ? 1 : 0).putInt(0)
+                .flip();
+    }
+
+    private static long posicaoSlot(int i) {
+        return CABECALHO_INDICE + (long) i * TAMANHO_SLOT;
+    }
+
+    private static int espalhar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // ======================== E/S ========================
+
+    private static ByteBuffer lerTudo(FileChannel canal, int tamanho, long pos) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(tamanho);
+        while (buf.hasRemaining()) {
+            if (canal.read(buf, pos + buf.position()) < 0) throw new EOFException("Fim inesperado de " + canal);
+        }
+        return buf.flip();
+    }
+
+    /** @return a posição logo após o que foi escrito */
+    private static long escreverTudo(FileChannel canal, ByteBuffer buf, long pos) throws IOException {
+        long p = pos;
+        while (buf.hasRemaining()) p += canal.write(buf, p);
+        return p;
+    }
+
+    private void fecharCanais() {
+        for (FileChannel c : new FileChannel[]{indice, dados}) {
+            try {
+                if (c != null) c.close();
+            } catch (IOException ignorada) {
+                // nada a fazer ao fechar
+            }
+        }
+        indice = null;
+        dados = null;
+    }
+}
@@ -1,23 +1,123 @@
 package repository;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import exception.RegraNegocioException;
 import model.Musica;
 import persistence.FileStorage;
+import persistence.Mutacao;
 
 /**
  * Repositório em memória com persistência em arquivo.
  * Totalmente testável: aceita FileStorage mockado.
+ * Se o storage for incremental (journal), cada operação grava apenas a mutação;
+ * caso contrário, a lista completa é salva.
+ * <p>
+ * As músicas ficam numa {@link TabelaLinhas} com índice primário por ID: busca,
+ * edição e remoção por ID são O(1) em média e {@link #listarTodas()} mantém a ordem
+ * de inserção. Um segundo índice, pela chave de duplicidade
+ * ({@link Musica#getChaveDuplicidade()}), torna {@link #existeDuplicada(Musica)} O(1).
+ * Título e artista têm índices de trigramas: as buscas por substring só
+ * verificam as linhas candidatas devolvidas pelo índice. O gênero, com poucos
+ * valores distintos, tem um bitmap compactado de linhas por valor ({@link IndiceBitmap}),
+ * que responde exatamente e se combina por E/OU/NÃO nas consultas. Esses mesmos campos
+ * alimentam {@link #sugerir(String, int)}, usado no autocompletar da busca.
+ * A duração tem um índice ordenado ({@link IndiceDuracao}) para consultas por faixa.
+ * Consultas com vários critérios ({@link #buscar(Consulta)}) passam por um
+ * {@link PlanejadorConsulta}, que combina esses índices antes de olhar as músicas.
+ * Contagens por artista, álbum e gênero ({@link #contarPor(Consulta.Campo)}) são
+ * mantidas a cada operação, sem agrupar o catálogo na hora da consulta.
+ * </p>
+ * <p>
+ * Thread-safe: escritas são serializadas por um lock exclusivo e as consultas aos
+ * índices compartilham o lock de leitura, rodando em paralelo entre si.
+ * {@link #listarTodas()} devolve um snapshot imutável publicado num campo volátil,
+ * lido sem lock; só a primeira leitura após uma mutação o reconstrói. As edições são
+ * copy-on-write: a linha passa a apontar para uma nova {@link Musica} e as instâncias
+ * já entregues (snapshots, resultados em cache, a tabela da interface) nunca mudam.
+ * </p>
+ * <p>
+ * Com uma janela de gravação (construtor com {@link Duration}), a persistência é
+ * write-behind: as operações só enfileiram a mutação e uma thread própria grava o
+ * lote fundido ao fim da janela. Use {@link #flush()} para forçar a gravação e
+ * {@link #close()} ao encerrar a aplicação.
+ * </p>
+ * <p>
+ * Sem janela e com um storage de snapshot completo, a lista é salva depois que o lock
+ * de escrita é liberado, então consultas e outras escritas não esperam o disco. Cada
+ * mutação recebe um número de versão; quem chega enquanto outra gravação está em
+ * andamento espera por ela e, se a gravação seguinte já cobriu a sua versão, volta sem
+ * gravar de novo (group commit): uma rajada de escritas concorrentes custa poucos fsyncs.
+ * </p>
+ * <p>
+ * Os resultados das buscas por título, artista, gênero e de {@link #buscar(Consulta)}
+ * ficam num cache LRU ({@link CacheConsultas}); cada operação descarta só as entradas
+ * cujo resultado a música afeta. Por isso as listas devolvidas são imutáveis.
+ * Os contadores estão em {@link #estatisticasCache()}.
+ * </p>
+ * <p>
+ * Opcionalmente, colunas primitivas ({@link CatalogoColunar}) substituem o índice de
+ * trigramas de artista: essa busca e as agregações viram laços sobre
+ * arrays primitivos, e só as linhas do resultado tocam nos objetos {@link Musica}.
+ * As colunas complementam a tabela de objetos em vez de substituí-la, porque as
+ * consultas devolvem as próprias instâncias de {@link Musica}.
+ * </p>
  */
-public class BibliotecaMusical {
+public final class BibliotecaMusical implements AutoCloseable {
 
-    private final List<Musica> listaMusicas;
+    /** Quantos resultados de busca distintos ficam em cache. */
+    private static final int TAMANHO_CACHE = 128;
+
+    private final TabelaLinhas linhas = new TabelaLinhas();
+    /** Quantas músicas compartilham cada chave (uma edição pode gerar duplicadas). */
+    private final Map<String, Integer> porChave = new HashMap<>();
+    private final IndiceTrigramas indiceTitulo = new IndiceTrigramas();
+    private final IndiceTrigramas indiceArtista = new IndiceTrigramas();
+    /** Poucos gêneros distintos: um bitmap de linhas por gênero. */
+    private final IndiceBitmap indiceGenero = new IndiceBitmap();
+    private final IndiceAutocompletar autocompletar = new IndiceAutocompletar();
+    private final IndiceDuracao indiceDuracao = new IndiceDuracao();
+    private final ContagemFacetas facetas = new ContagemFacetas();
+    private final CacheConsultas cache = new CacheConsultas(TAMANHO_CACHE);
+    /** Durante cargas completas o índice de duração é montado de uma vez no fim. */
+    private boolean indexandoEmLote;
+    /** Colunas primitivas para varreduras; null quando desativado. */
+    private final CatalogoColunar colunar;
+    private final PlanejadorConsulta planejador;
     private final FileStorage storage;
+    /** Gravação em segundo plano; null quando a persistência é síncrona. */
+    private final GravadorAssincrono gravador;
+
+    /** Versão do catálogo, incrementada a cada lote no modo de snapshot completo; escrita só com o lock de escrita. */
+    private volatile long versao;
+    /** Última versão salva no storage; escrita só com {@code salvamento}. */
+    private volatile long versaoSalva;
+    /** Uma gravação de snapshot por vez; as demais esperam aqui e podem ser atendidas por ela. */
+    private final Object salvamento = new Object();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock leitura = lock.readLock();
+    private final Lock escrita = lock.writeLock();
+
+    /** Snapshot imutável das músicas em ordem de inserção; null após qualquer mutação. */
+    private volatile List<Musica> visao;
 
     /** Construtor padrão — cria FileStorage com caminho padrão. */
     public BibliotecaMusical(Path arquivo) {
@@ -34,7 +134,29 @@ public class BibliotecaMusical {
      * Útil para testes unitários.
      */
     public BibliotecaMusical(FileStorage storage, boolean carregarExemplosSeVazio) {
+        this(storage, carregarExemplosSeVazio, null);
+    }
+
+    /**
+     * @param janelaGravacao atraso máximo entre uma operação e sua gravação no disco;
+     *                       null ou zero mantém a persistência síncrona
+     */
+    public BibliotecaMusical(FileStorage storage, boolean carregarExemplosSeVazio, Duration janelaGravacao) {
+        this(storage, carregarExemplosSeVazio, janelaGravacao, false);
+    }
+
+    /**
+     * @param colunar true para manter as colunas primitivas usadas nas buscas por artista e
+     *                álbum e em {@link #duracaoTotal()}
+     */
+    public BibliotecaMusical(FileStorage storage, boolean carregarExemplosSeVazio,
+                             Duration janelaGravacao, boolean colunar) {
         this.storage = storage;
+        this.colunar = colunar ? new CatalogoColunar() : null;
+        this.planejador = new PlanejadorConsulta(indiceTitulo, indiceArtista, indiceGenero, indiceDuracao, this.colunar);
+        this.gravador = (janelaGravacao == null || janelaGravacao.isZero() || janelaGravacao.isNegative())
+                ? null
+                : new GravadorAssincrono(storage, this::listarTodas, janelaGravacao);
         List<Musica> carregadas = storage.carregar();
 
         if (carregarExemplosSeVazio && carregadas.isEmpty()) {
@@ -42,7 +164,19 @@ public class BibliotecaMusical {
             storage.salvar(carregadas);
         }
 
-        this.listaMusicas = new ArrayList<>(carregadas);
+        indexandoEmLote = true;
+        for (Musica m : carregadas) {
+            int linha = linhas.linhaDe(m.getId());
+            if (linha < 0) {
+                indexar(linhas.adicionar(m), m);
+            } else {
+                // ID repetido no arquivo: a última ocorrência vence
+                desindexar(linha, linhas.musica(linha));
+                linhas.substituir(linha, m);
+                indexar(linha, m);
+            }
+        }
+        reconstruirIndiceDuracao();
     }
 
     private List<Musica> criarMusicasExemplo() {
@@ -56,81 +190,559 @@ public class BibliotecaMusical {
     // ======================== Operações ========================
 
     public boolean adicionarMusica(Musica m) {
-        if (m == null || existeDuplicada(m)) return false;
-        listaMusicas.add(m);
-        storage.salvar(listaMusicas);
-        return true;
+        if (m == null) return false;
+        escrita.lock();
+        try {
+            if (linhas.linhaDe(m.getId()) >= 0 || porChave.containsKey(m.getChaveDuplicidade())) return false;
+            indexar(linhas.adicionar(m), m);
+            cache.invalidar(m);
+            visao = null;
+            persistir(Mutacao.inclusao(m));
+            return true;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
     }
 
     public boolean editarMusica(UUID id, String novoTitulo, String novoArtista,
                                 String novoAlbum, String novoGenero, Integer novaDuracao) {
-        Optional<Musica> opt = buscarPorId(id);
-        if (opt.isEmpty()) return false;
-        Musica alvo = opt.get();
-
-        if (novoTitulo != null) alvo.setTitulo(novoTitulo);
-        if (novoArtista != null) alvo.setArtista(novoArtista);
-        if (novoAlbum != null) alvo.setAlbum(novoAlbum);
-        if (novoGenero != null) alvo.setGenero(novoGenero);
-        if (novaDuracao != null) alvo.setDuracaoSegundos(novaDuracao);
+        if (id == null) return false;
+        escrita.lock();
+        try {
+            int linha = linhas.linhaDe(id);
+            if (linha < 0) return false;
+            Musica atual = linhas.musica(linha);
+            // Valores inválidos são rejeitados aqui, antes de qualquer alteração
+            Musica editada = editada(atual, novoTitulo, novoArtista, novoAlbum, novoGenero, novaDuracao);
 
-        storage.salvar(listaMusicas);
-        return true;
+            trocar(linha, atual, editada);
+            visao = null;
+            persistir(Mutacao.edicao(editada));
+            return true;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
     }
 
     public boolean removerPorId(UUID id) {
-        boolean ok = listaMusicas.removeIf(m -> m.getId().equals(id));
-        if (ok) storage.salvar(listaMusicas);
-        return ok;
+        if (id == null) return false;
+        escrita.lock();
+        try {
+            int linha = linhas.linhaDe(id);
+            if (linha < 0) return false;
+            Musica removida = linhas.musica(linha);
+            desindexar(linha, removida);
+            cache.invalidar(removida);
+            linhas.remover(id);
+            if (linhas.precisaCompactar()) reconstruirIndices();
+            visao = null;
+            persistir(Mutacao.remocao(id));
+            return true;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
     }
 
+    // ======================== Operações em lote ========================
+
+    /**
+     * Adiciona várias músicas de uma vez. Nulas, IDs já existentes e duplicadas
+     * (na biblioteca ou dentro do próprio lote) são rejeitadas; as demais são
+     * aplicadas juntas e persistidas com uma única gravação.
+     */
+    public ResultadoLote adicionarTodas(Collection<Musica> musicas) {
+        ResultadoLote resultado = new ResultadoLote();
+        if (musicas == null) return resultado;
+
+        escrita.lock();
+        try {
+            List<Musica> validas = new ArrayList<>();
+            Set<UUID> idsDoLote = new HashSet<>();
+            Set<String> chavesDoLote = new HashSet<>();
+            int i = 0;
+            for (Musica m : musicas) {
+                if (m == null) {
+                    resultado.falha(i++, null, "Música nula.");
+                } else if (linhas.linhaDe(m.getId()) >= 0 || !idsDoLote.add(m.getId())) {
+                    resultado.falha(i++, m.getId(), "ID já cadastrado.");
+                } else if (porChave.containsKey(m.getChaveDuplicidade()) || !chavesDoLote.add(m.getChaveDuplicidade())) {
+                    resultado.falha(i++, m.getId(), "Já existe uma música idêntica cadastrada.");
+                } else {
+                    validas.add(m);
+                    resultado.sucesso(i++, m.getId());
+                }
+            }
+
+            List<Mutacao> lote = new ArrayList<>(validas.size());
+            for (Musica m : validas) {
+                indexar(linhas.adicionar(m), m);
+                cache.invalidar(m);
+                lote.add(Mutacao.inclusao(m));
+            }
+            if (!lote.isEmpty()) visao = null;
+            persistirLote(lote);
+            return resultado;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
+    }
+
+    /** Remove vários IDs com uma única gravação; IDs inexistentes ou repetidos são rejeitados. */
+    public ResultadoLote removerTodos(Collection<UUID> ids) {
+        ResultadoLote resultado = new ResultadoLote();
+        if (ids == null) return resultado;
+
+        escrita.lock();
+        try {
+            Set<UUID> validos = new LinkedHashSet<>();
+            int i = 0;
+            for (UUID id : ids) {
+                if (id == null || linhas.linhaDe(id) < 0 || !validos.add(id)) {
+                    resultado.falha(i++, id, "Nenhuma música encontrada com esse ID.");
+                } else {
+                    resultado.sucesso(i++, id);
+                }
+            }
+
+            List<Mutacao> lote = new ArrayList<>(validos.size());
+            for (UUID id : validos) {
+                int linha = linhas.linhaDe(id);
+                Musica removida = linhas.musica(linha);
+                desindexar(linha, removida);
+                cache.invalidar(removida);
+                linhas.remover(id);
+                lote.add(Mutacao.remocao(id));
+            }
+            if (!lote.isEmpty()) {
+                if (linhas.precisaCompactar()) reconstruirIndices();
+                visao = null;
+            }
+            persistirLote(lote);
+            return resultado;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
+    }
+
+    /**
+     * Aplica várias edições com uma única gravação. Cada edição é validada antes
+     * (ID existente e valores aceitos por {@link Musica}); só depois as válidas são
+     * aplicadas, então nenhuma fica pela metade.
+     * Edições repetidas para o mesmo ID se acumulam na ordem do lote.
+     */
+    public ResultadoLote editarTodas(List<EdicaoMusica> edicoes) {
+        ResultadoLote resultado = new ResultadoLote();
+        if (edicoes == null) return resultado;
+
+        escrita.lock();
+        try {
+            // Rascunho com o estado final de cada música editada
+            Map<UUID, Musica> rascunhos = new LinkedHashMap<>();
+            for (int i = 0; i < edicoes.size(); i++) {
+                EdicaoMusica e = edicoes.get(i);
+                UUID id = e == null ? null : e.id();
+                int linha = id == null ? -1 : linhas.linhaDe(id);
+                if (linha < 0) {
+                    resultado.falha(i, id, "Nenhuma música encontrada com esse ID.");
+                    continue;
+                }
+                Musica base = rascunhos.getOrDefault(id, linhas.musica(linha));
+                try {
+                    rascunhos.put(id, editada(base, e.titulo(), e.artista(), e.album(), e.genero(), e.duracao()));
+                    resultado.sucesso(i, id);
+                } catch (RegraNegocioException ex) {
+                    resultado.falha(i, id, ex.getMessage());
+                }
+            }
+
+            List<Mutacao> lote = new ArrayList<>(rascunhos.size());
+            for (Musica editada : rascunhos.values()) {
+                int linha = linhas.linhaDe(editada.getId());
+                trocar(linha, linhas.musica(linha), editada);
+                lote.add(Mutacao.edicao(editada));
+            }
+            if (!lote.isEmpty()) visao = null;
+            persistirLote(lote);
+            return resultado;
+        } finally {
+            escrita.unlock();
+            salvarPendentes();
+        }
+    }
+
+    // ======================== Consultas ========================
+
     public Optional<Musica> buscarPorId(UUID id) {
         if (id == null) return Optional.empty();
-        return listaMusicas.stream().filter(m -> m.getId().equals(id)).findFirst();
+        leitura.lock();
+        try {
+            int linha = linhas.linhaDe(id);
+            return linha < 0 ? Optional.empty() : Optional.of(linhas.musica(linha));
+        } finally {
+            leitura.unlock();
+        }
     }
 
     public List<Musica> buscarPorTitulo(String termo) {
-        String t = termo == null ? "" : termo.toLowerCase();
-        List<Musica> resultado = new ArrayList<>();
-        for (Musica m : listaMusicas) {
-            if (m.getTitulo() != null && m.getTitulo().toLowerCase().contains(t)) resultado.add(m);
-        }
-        return resultado;
+        return emCache(Consulta.contem(Consulta.Campo.TITULO, termo),
+                () -> buscarPorSubstring(indiceTitulo, Musica::getTitulo, termo));
     }
 
     public List<Musica> buscarPorArtista(String termo) {
-        String t = termo == null ? "" : termo.toLowerCase();
-        List<Musica> resultado = new ArrayList<>();
-        for (Musica m : listaMusicas) {
-            if (m.getArtista() != null && m.getArtista().toLowerCase().contains(t)) resultado.add(m);
+        return emCache(Consulta.contem(Consulta.Campo.ARTISTA, termo), () -> colunar != null
+                ? buscarNaColuna(CatalogoColunar.Coluna.ARTISTA, termo)
+                : buscarPorSubstring(indiceArtista, Musica::getArtista, termo));
+    }
+
+    /** O índice de bitmaps já dá o resultado exato: não há candidatos a verificar. */
+    public List<Musica> buscarPorGenero(String termo) {
+        return emCache(Consulta.contem(Consulta.Campo.GENERO, termo), () -> {
+            int[] encontradas = indiceGenero.contem(termo == null ? "" : termo.toLowerCase()).paraArray();
+            List<Musica> resultado = new ArrayList<>(encontradas.length);
+            for (int linha : encontradas) resultado.add(linhas.musica(linha));
+            return resultado;
+        });
+    }
+
+    /**
+     * Devolve o resultado guardado para a consulta ou o calcula e guarda. Tudo sob o
+     * lock de leitura, para que nenhuma escrita (que invalida o cache) caia no meio.
+     */
+    private List<Musica> emCache(Consulta chave, Supplier<List<Musica>> calculo) {
+        leitura.lock();
+        try {
+            List<Musica> resultado = cache.obter(chave);
+            if (resultado == null) {
+                resultado = Collections.unmodifiableList(calculo.get());
+                cache.guardar(chave, resultado);
+            }
+            return resultado;
+        } finally {
+            leitura.unlock();
         }
+    }
+
+    /** Contadores de acertos e falhas do cache de buscas. */
+    public EstatisticasCache estatisticasCache() {
+        return cache.estatisticas();
+    }
+
+    /** Mesma semântica de {@link #buscarPorSubstring}, filtrando pelos códigos da coluna. */
+    private List<Musica> buscarNaColuna(CatalogoColunar.Coluna coluna, String termo) {
+        String t = termo == null ? "" : termo.toLowerCase();
+        int[] encontradas = colunar.filtrarContem(coluna, t);
+        List<Musica> resultado = new ArrayList<>(encontradas.length);
+        for (int linha : encontradas) resultado.add(linhas.musica(linha));
         return resultado;
     }
 
-    public List<Musica> buscarPorGenero(String termo) {
+    /**
+     * Busca case-insensitive por substring. O índice só reduz o conjunto de linhas
+     * a verificar; a checagem final é o mesmo {@code toLowerCase().contains()} de sempre.
+     */
+    private List<Musica> buscarPorSubstring(IndiceTrigramas indice, Function<Musica, String> campo, String termo) {
         String t = termo == null ? "" : termo.toLowerCase();
         List<Musica> resultado = new ArrayList<>();
-        for (Musica m : listaMusicas) {
-            if (m.getGenero() != null && m.getGenero().toLowerCase().contains(t)) resultado.add(m);
+        int[] candidatos = indice.candidatos(t);
+        if (candidatos == null) {
+            // Termo curto demais para trigramas: varredura completa
+            for (int linha = 0; linha < linhas.limite(); linha++) {
+                Musica m = linhas.musica(linha);
+                if (m != null && contem(campo.apply(m), t)) resultado.add(m);
+            }
+        } else {
+            for (int linha : candidatos) {
+                Musica m = linhas.musica(linha);
+                if (contem(campo.apply(m), t)) resultado.add(m);
+            }
         }
         return resultado;
     }
 
+    private static boolean contem(String valor, String termoMinusculo) {
+        return valor != null && valor.toLowerCase().contains(termoMinusculo);
+    }
+
+    /**
+     * Sugestões para o prefixo digitado entre títulos, artistas e gêneros.
+     * Seguro para chamar fora da EDT.
+     *
+     * @param prefixo texto digitado (case-insensitive)
+     * @param limite  quantidade máxima de sugestões
+     */
+    public List<String> sugerir(String prefixo, int limite) {
+        leitura.lock();
+        try {
+            return autocompletar.sugerir(prefixo, limite);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
     public List<Musica> listarTodas() {
-        return Collections.unmodifiableList(listaMusicas);
+        List<Musica> v = visao;
+        if (v != null) return v;
+
+        leitura.lock();
+        try {
+            // Vários leitores podem reconstruir ao mesmo tempo; todos obtêm o mesmo conteúdo
+            v = Collections.unmodifiableList(linhas.listar());
+            visao = v;
+            return v;
+        } finally {
+            leitura.unlock();
+        }
     }
 
     /** Verifica duplicadas por conteúdo, não apenas referência */
     public boolean existeDuplicada(Musica nova) {
         if (nova == null) return false;
-        for (Musica m : listaMusicas) {
-            if (m.equals(nova)) return true;
+        leitura.lock();
+        try {
+            return porChave.containsKey(nova.getChaveDuplicidade());
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Executa uma consulta com vários critérios. O planejador reduz as linhas pelos
+     * índices disponíveis e só os candidatos são verificados contra a consulta
+     * completa; o resultado vem em ordem de inserção.
+     */
+    public List<Musica> buscar(Consulta consulta) {
+        if (consulta == null) return listarTodas();
+        return emCache(consulta, () -> executar(consulta));
+    }
+
+    private List<Musica> executar(Consulta consulta) {
+        List<Musica> resultado = new ArrayList<>();
+        int[] candidatos = planejador.candidatos(consulta);
+        if (candidatos == null) {
+            for (int linha = 0; linha < linhas.limite(); linha++) {
+                Musica m = linhas.musica(linha);
+                if (m != null && consulta.aceita(m)) resultado.add(m);
+            }
+        } else {
+            for (int linha : candidatos) {
+                Musica m = linhas.musica(linha);
+                if (consulta.aceita(m)) resultado.add(m);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Músicas com duração entre {@code minSegundos} e {@code maxSegundos} (inclusive),
+     * da mais curta para a mais longa. Use {@link Integer#MAX_VALUE} como máximo para
+     * "mais longas que". Custo O(log n + k) pelo índice ordenado.
+     */
+    public List<Musica> buscarPorDuracao(int minSegundos, int maxSegundos) {
+        leitura.lock();
+        try {
+            int[] encontradas = indiceDuracao.linhasEntre(minSegundos, maxSegundos);
+            List<Musica> resultado = new ArrayList<>(encontradas.length);
+            for (int linha : encontradas) resultado.add(linhas.musica(linha));
+            return resultado;
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /**
+     * Quantidade de músicas por valor do campo (artista, álbum ou gênero), da maior
+     * para a menor. As contagens já estão prontas; o custo é só copiá-las.
+     *
+     * @throws IllegalArgumentException para {@link Consulta.Campo#TITULO}
+     */
+    public Map<String, Integer> contarPor(Consulta.Campo campo) {
+        leitura.lock();
+        try {
+            return facetas.contagens(campo);
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /** Mesmas contagens, restritas a um conjunto de músicas, como o resultado de uma busca. */
+    public Map<String, Integer> contarPor(Consulta.Campo campo, Collection<Musica> musicas) {
+        return ContagemFacetas.contagens(campo, musicas == null ? List.of() : musicas);
+    }
+
+    /** Soma das durações de todas as músicas, em segundos. */
+    public long duracaoTotal() {
+        leitura.lock();
+        try {
+            if (colunar != null) return colunar.somaDuracao();
+            long soma = 0;
+            for (int linha = 0; linha < linhas.limite(); linha++) {
+                Musica m = linhas.musica(linha);
+                if (m != null) soma += m.getDuracaoSegundos();
+            }
+            return soma;
+        } finally {
+            leitura.unlock();
         }
-        return false;
     }
 
     public int tamanho() {
-        return listaMusicas.size();
+        leitura.lock();
+        try {
+            return linhas.vivas();
+        } finally {
+            leitura.unlock();
+        }
+    }
+
+    /** Nova versão da música com os campos não nulos trocados; a original não muda. */
+    private static Musica editada(Musica base, String titulo, String artista, String album,
+                                  String genero, Integer duracao) {
+        return new Musica(base.getId(),
+                titulo != null ? titulo : base.getTitulo(),
+                artista != null ? artista : base.getArtista(),
+                album != null ? album : base.getAlbum(),
+                genero != null ? genero : base.getGenero(),
+                duracao != null ? duracao : base.getDuracaoSegundos());
+    }
+
+    /** Põe a nova versão na linha, reindexa e descarta os resultados em cache que tinham a antiga. */
+    private void trocar(int linha, Musica antiga, Musica nova) {
+        desindexar(linha, antiga);
+        linhas.substituir(linha, nova);
+        indexar(linha, nova);
+        cache.invalidarEdicao(antiga, nova);
+    }
+
+    // ======================== Índices ========================
+
+    private void indexar(int linha, Musica m) {
+        porChave.merge(m.getChaveDuplicidade(), 1, Integer::sum);
+        indiceTitulo.adicionar(linha, m.getTitulo());
+        if (colunar != null) {
+            colunar.definir(linha, m);
+        } else {
+            indiceArtista.adicionar(linha, m.getArtista());
+        }
+        indiceGenero.adicionar(linha, m.getGenero());
+        autocompletar.adicionar(m.getTitulo());
+        autocompletar.adicionar(m.getArtista());
+        autocompletar.adicionar(m.getGenero());
+        facetas.adicionar(m);
+        if (!indexandoEmLote) indiceDuracao.adicionar(linha, m.getDuracaoSegundos());
+    }
+
+    private void desindexar(int linha, Musica m) {
+        porChave.computeIfPresent(m.getChaveDuplicidade(), (k, n) -> n == 1 ? null : n - 1);
+        indiceTitulo.remover(linha, m.getTitulo());
+        if (colunar != null) {
+            colunar.remover(linha);
+        } else {
+            indiceArtista.remover(linha, m.getArtista());
+        }
+        indiceGenero.remover(linha, m.getGenero());
+        autocompletar.remover(m.getTitulo());
+        autocompletar.remover(m.getArtista());
+        autocompletar.remover(m.getGenero());
+        facetas.remover(m);
+        if (!indexandoEmLote) indiceDuracao.remover(linha, m.getDuracaoSegundos());
+    }
+
+    /** Descarta as lápides da tabela e reindexa com a nova numeração de linhas. */
+    private void reconstruirIndices() {
+        linhas.compactar();
+        porChave.clear();
+        indiceTitulo.limpar();
+        indiceArtista.limpar();
+        indiceGenero.limpar();
+        if (colunar != null) colunar.limpar();
+        autocompletar.limpar();
+        facetas.limpar();
+        indexandoEmLote = true;
+        for (int linha = 0; linha < linhas.limite(); linha++) {
+            indexar(linha, linhas.musica(linha));
+        }
+        reconstruirIndiceDuracao();
+    }
+
+    /** Monta o índice de duração ordenando todas as linhas de uma vez e encerra o modo em lote. */
+    private void reconstruirIndiceDuracao() {
+        int[] numeros = new int[linhas.vivas()];
+        int[] duracoes = new int[numeros.length];
+        int n = 0;
+        for (int linha = 0; linha < linhas.limite(); linha++) {
+            Musica m = linhas.musica(linha);
+            if (m == null) continue;
+            numeros[n] = linha;
+            duracoes[n++] = m.getDuracaoSegundos();
+        }
+        indiceDuracao.reconstruir(numeros, duracoes, n);
+        indexandoEmLote = false;
+    }
+
+    // ======================== Persistência ========================
+
+    /** Grava as mutações pendentes da janela atual e aguarda a conclusão. */
+    public void flush() {
+        if (gravador != null) gravador.flush();
+    }
+
+    /**
+     * Grava o que estiver pendente e encerra a thread de gravação. Não toma o lock de
+     * escrita: a gravação em andamento pode precisar do de leitura para o snapshot.
+     */
+    @Override
+    public void close() {
+        if (gravador != null) gravador.close();
+    }
+
+    /** Chamado sempre com o lock de escrita, o que também mantém a ordem das mutações no journal. */
+    private void persistir(Mutacao mutacao) {
+        persistirLote(List.of(mutacao));
+    }
+
+    /**
+     * Persiste um lote inteiro de uma vez (uma gravação no journal ou um único salvar).
+     * No modo de snapshot completo só marca uma nova versão: a gravação fica para
+     * {@link #salvarPendentes()}, fora do lock de escrita.
+     */
+    private void persistirLote(List<Mutacao> lote) {
+        if (lote.isEmpty()) return;
+        if (gravador != null) {
+            gravador.enfileirar(lote);
+        } else if (storage.isIncremental()) {
+            storage.registrar(lote);
+        } else {
+            versao++;
+        }
+    }
+
+    /**
+     * Salva o catálogo se houver versão ainda não gravada. Chamado depois de liberar o
+     * lock de escrita; a lista é lida na hora da gravação, então cobre todas as mutações
+     * concluídas até ali, inclusive as de quem ainda está esperando na fila.
+     */
+    private void salvarPendentes() {
+        long alvo = versao;
+        if (versaoSalva >= alvo) return;
+        synchronized (salvamento) {
+            if (versaoSalva >= alvo) return; // a gravação anterior já incluiu esta mutação
+            List<Musica> snapshot;
+            long lida;
+            leitura.lock();
+            try {
+                snapshot = listarTodas();
+                lida = versao;
+            } finally {
+                leitura.unlock();
+            }
+            storage.salvar(snapshot);
+            versaoSalva = lida;
+        }
     }
 }
 
@@ -0,0 +1,380 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto compactado de números de linha (inteiros não negativos), no estilo "roaring".
+ * <p>
+ * As linhas são divididas em blocos de 65536 pelos 16 bits altos. Cada bloco guarda os
+ * 16 bits baixos num array ordenado de {@code char} enquanto tem até 4096 elementos, e
+ * num mapa de 1024 {@code long} (8 KB) quando fica mais denso; assim nenhum bloco ocupa
+ * mais que 8 KB, e um gênero com poucas músicas espalhadas continua pequeno.
+ * As operações {@link #e}, {@link #ou} e {@link #eNao} trabalham bloco a bloco e
+ * devolvem um bitmap novo, sem alterar os operandos. Não é thread-safe.
+ * </p>
+ */
+final class BitmapCompactado {
+
+    /** Acima disso um bloco em array ocuparia mais que o mapa de bits. */
+    private static final int LIMITE_ARRAY = 4096;
+
+    private char[] chaves = new char[4];
+    private Bloco[] blocos = new Bloco[4];
+    private int tamanho;
+
+    void adicionar(int linha) {
+        char alto = (char) (linha >>> 16);
+        int pos = buscarChave(alto);
+        if (pos < 0) {
+            pos = -pos - 1;
+            inserirBloco(pos, alto, new BlocoArray());
+        }
+        blocos[pos] = blocos[pos].adicionar((char) linha);
+    }
+
+    void remover(int linha) {
+        int pos = buscarChave((char) (linha >>> 16));
+        if (pos < 0) return;
+        Bloco b = blocos[pos].remover((char) linha);
+        if (b.cardinalidade() == 0) {
+            System.arraycopy(chaves, pos + 1, chaves, pos, tamanho - pos - 1);
+            System.arraycopy(blocos, pos + 1, blocos, pos, tamanho - pos - 1);
+            blocos[--tamanho] = null;
+        } else {
+            blocos[pos] = b;
+        }
+    }
+
+    boolean contem(int linha) {
+        int pos = buscarChave((char) (linha >>> 16));
+        return pos >= 0 && blocos[pos].contem((char) linha);
+    }
+
+    int cardinalidade() {
+        int n = 0;
+        for (int i = 0; i < tamanho; i++) n += blocos[i].cardinalidade();
+        return n;
+    }
+
+    boolean vazio() {
+        return tamanho == 0;
+    }
+
+    /** Linhas em ordem crescente. */
+    int[] paraArray() {
+        int[] out = new int[cardinalidade()];
+        int n = 0;
+        for (int i = 0; i < tamanho; i++) n = blocos[i].copiar(chaves[i] << 16, out, n);
+        return out;
+    }
+
+    // ======== OPERAÇÕES ========
+
+    /** Linhas presentes nos dois. */
+    static BitmapCompactado e(BitmapCompactado a, BitmapCompactado b) {
+        BitmapCompactado r = new BitmapCompactado();
+        int i = 0, j = 0;
+        while (i < a.tamanho && j < b.tamanho) {
+            if (a.chaves[i] < b.chaves[j]) i++;
+            else if (a.chaves[i] > b.chaves[j]) j++;
+            else {
+                r.anexar(a.chaves[i], a.blocos[i++].e(b.blocos[j++]));
+            }
+        }
+        return r;
+    }
+
+    /** Linhas presentes em pelo menos um. */
+    static BitmapCompactado ou(BitmapCompactado a, BitmapCompactado b) {
+        BitmapCompactado r = new BitmapCompactado();
+        int i = 0, j = 0;
+        while (i < a.tamanho || j < b.tamanho) {
+            if (j == b.tamanho || (i < a.tamanho && a.chaves[i] < b.chaves[j])) {
+                r.anexar(a.chaves[i], a.blocos[i++].copia());
+            } else if (i == a.tamanho || b.chaves[j] < a.chaves[i]) {
+                r.anexar(b.chaves[j], b.blocos[j++].copia());
+            } else {
+                r.anexar(a.chaves[i], a.blocos[i++].ou(b.blocos[j++]));
+            }
+        }
+        return r;
+    }
+
+    /** Linhas de {@code a} que não estão em {@code b}. */
+    static BitmapCompactado eNao(BitmapCompactado a, BitmapCompactado b) {
+        BitmapCompactado r = new BitmapCompactado();
+        int j = 0;
+        for (int i = 0; i < a.tamanho; i++) {
+            while (j < b.tamanho && b.chaves[j] < a.chaves[i]) j++;
+            if (j < b.tamanho && b.chaves[j] == a.chaves[i]) r.anexar(a.chaves[i], a.blocos[i].eNao(b.blocos[j]));
+            else r.anexar(a.chaves[i], a.blocos[i].copia());
+        }
+        return r;
+    }
+
+    // ======== CHAVES ========
+
+    private int buscarChave(char alto) {
+        return Arrays.binarySearch(chaves, 0, tamanho, alto);
+    }
+
+    private void inserirBloco(int pos, char alto, Bloco bloco) {
+        if (tamanho == chaves.length) {
+            chaves = Arrays.copyOf(chaves, tamanho * 2);
+            blocos = Arrays.copyOf(blocos, tamanho * 2);
+        }
+        System.arraycopy(chaves, pos, chaves, pos + 1, tamanho - pos);
+        System.arraycopy(blocos, pos, blocos, pos + 1, tamanho - pos);
+        chaves[pos] = alto;
+        blocos[pos] = bloco;
+        tamanho++;
+    }
+
+    /** Acrescenta no fim (as operações produzem chaves em ordem); blocos vazios são descartados. */
+    private void anexar(char alto, Bloco bloco) {
+        if (bloco == null || bloco.cardinalidade() == 0) return;
+        inserirBloco(tamanho, alto, bloco);
+    }
+
+    // ======== BLOCOS ========
+
+    private abstract static sealed class Bloco permits BlocoArray, BlocoBits {
+        /** Pode devolver outro bloco quando a representação muda. */
+        abstract Bloco adicionar(char v);
+
+        abstract Bloco remover(char v);
+
+        abstract boolean contem(char v);
+
+        abstract int cardinalidade();
+
+        abstract Bloco copia();
+
+        /** Escreve {@code base | v} para cada valor em ordem e devolve a próxima posição livre. */
+        abstract int copiar(int base, int[] destino, int pos);
+
+        abstract Bloco e(Bloco outro);
+
+        abstract Bloco ou(Bloco outro);
+
+        abstract Bloco eNao(Bloco outro);
+    }
+
+    /** Bloco esparso: valores ordenados. */
+    private static final class BlocoArray extends Bloco {
+        private char[] valores;
+        private int n;
+
+        BlocoArray() {
+            this(new char[4], 0);
+        }
+
+        BlocoArray(char[] valores, int n) {
+            this.valores = valores;
+            this.n = n;
+        }
+
+        @Override
+        Bloco adicionar(char v) {
+            int pos = Arrays.binarySearch(valores, 0, n, v);
+            if (pos >= 0) return this;
+            if (n == LIMITE_ARRAY) return paraBits().adicionar(v);
+            pos = -pos - 1;
+            if (n == valores.length) valores = Arrays.copyOf(valores, Math.min(LIMITE_ARRAY, Math.max(4, n * 2)));
+            System.arraycopy(valores, pos, valores, pos + 1, n - pos);
+            valores[pos] = v;
+            n++;
+            return this;
+        }
+
+        @Override
+        Bloco remover(char v) {
+            int pos = Arrays.binarySearch(valores, 0, n, v);
+            if (pos < 0) return this;
+            System.arraycopy(valores, pos + 1, valores, pos, n - pos - 1);
+            n--;
+            return this;
+        }
+
+        @Override
+        boolean contem(char v) {
+            return Arrays.binarySearch(valores, 0, n, v) >= 0;
+        }
+
+        @Override
+        int cardinalidade() {
+            return n;
+        }
+
+        @Override
+        Bloco copia() {
+            return new BlocoArray(Arrays.copyOf(valores, Math.max(n, 1)), n);
+        }
+
+        @Override
+        int copiar(int base, int[] destino, int pos) {
+            for (int i = 0; i < n; i++) destino[pos++] = base | valores[i];
+            return pos;
+        }
+
+        @Override
+        Bloco e(Bloco outro) {
+            char[] out = new char[n];
+            int k = 0;
+            if (outro instanceof BlocoArray b) {
+                int i = 0, j = 0;
+                while (i < n && j < b.n) {
+                    if (valores[i] < b.valores[j]) i++;
+                    else if (valores[i] > b.valores[j]) j++;
+                    else {
+                        out[k++] = valores[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) if (outro.contem(valores[i])) out[k++] = valores[i];
+            }
+            return new BlocoArray(out, k);
+        }
+
+        @Override
+        Bloco ou(Bloco outro) {
+            if (outro instanceof BlocoBits) return outro.ou(this);
+            BlocoArray b = (BlocoArray) outro;
+            char[] out = new char[n + b.n];
+            int i = 0, j = 0, k = 0;
+            while (i < n || j < b.n) {
+                if (j == b.n || (i < n && valores[i] < b.valores[j])) out[k++] = valores[i++];
+                else if (i == n || b.valores[j] < valores[i]) out[k++] = b.valores[j++];
+                else {
+                    out[k++] = valores[i++];
+                    j++;
+                }
+            }
+            BlocoArray r = new BlocoArray(out, k);
+            return k > LIMITE_ARRAY ? r.paraBits() : r;
+        }
+
+        @Override
+        Bloco eNao(Bloco outro) {
+            char[] out = new char[n];
+            int k = 0;
+            for (int i = 0; i < n; i++) if (!outro.contem(valores[i])) out[k++] = valores[i];
+            return new BlocoArray(out, k);
+        }
+
+        BlocoBits paraBits() {
+            long[] palavras = new long[1024];
+            for (int i = 0; i < n; i++) palavras[valores[i] >>> 6] |= 1L << valores[i];
+            return new BlocoBits(palavras, n);
+        }
+    }
+
+    /** Bloco denso: um bit por valor possível. */
+    private static final class BlocoBits extends Bloco {
+        private final long[] palavras;
+        private int n;
+
+        BlocoBits(long[] palavras, int n) {
+            this.palavras = palavras;
+            this.n = n;
+        }
+
+        @Override
+        Bloco adicionar(char v) {
+            long antes = palavras[v >>> 6];
+            palavras[v >>> 6] = antes | (1L << v);
+            if (antes != palavras[v >>> 6]) n++;
+            return this;
+        }
+
+        @Override
+        Bloco remover(char v) {
+            long antes = palavras[v >>> 6];
+            palavras[v >>> 6] = antes & ~(1L << v);
+            if (antes != palavras[v >>> 6]) n--;
+            return n <= LIMITE_ARRAY ? paraArray() : this;
+        }
+
+        @Override
+        boolean contem(char v) {
+            return (palavras[v >>> 6] & (1L << v)) != 0;
+        }
+
+        @Override
+        int cardinalidade() {
+            return n;
+        }
+
+        @Override
+        Bloco copia() {
+            return new BlocoBits(palavras.clone(), n);
+        }
+
+        @Override
+        int copiar(int base, int[] destino, int pos) {
+            for (int w = 0; w < palavras.length; w++) {
+                long palavra = palavras[w];
+                while (palavra != 0) {
+                    destino[pos++] = base | (w << 6) | Long.numberOfTrailingZeros(palavra);
+                    palavra &= palavra - 1;
+                }
+            }
+            return pos;
+        }
+
+        @Override
+        Bloco e(Bloco outro) {
+            if (outro instanceof BlocoArray) return outro.e(this);
+            long[] b = ((BlocoBits) outro).palavras;
+            long[] out = new long[1024];
+            for (int w = 0; w < out.length; w++) out[w] = palavras[w] & b[w];
+            return normalizar(out);
+        }
+
+        @Override
+        Bloco ou(Bloco outro) {
+            long[] out = palavras.clone();
+            if (outro instanceof BlocoArray a) {
+                for (int i = 0; i < a.n; i++) out[a.valores[i] >>> 6] |= 1L << a.valores[i];
+            } else {
+                long[] b = ((BlocoBits) outro).palavras;
+                for (int w = 0; w < out.length; w++) out[w] |= b[w];
+            }
+            return normalizar(out);
+        }
+
+        @Override
+        Bloco eNao(Bloco outro) {
+            long[] out = palavras.clone();
+            if (outro instanceof BlocoArray a) {
+                for (int i = 0; i < a.n; i++) out[a.valores[i] >>> 6] &= ~(1L << a.valores[i]);
+            } else {
+                long[] b = ((BlocoBits) outro).palavras;
+                for (int w = 0; w < out.length; w++) out[w] &= ~b[w];
+            }
+            return normalizar(out);
+        }
+
+        BlocoArray paraArray() {
+            char[] valores = new char[Math.max(n, 1)];
+            int k = 0;
+            for (int w = 0; w < palavras.length; w++) {
+                long palavra = palavras[w];
+                while (palavra != 0) {
+                    valores[k++] = (char) ((w << 6) | Long.numberOfTrailingZeros(palavra));
+                    palavra &= palavra - 1;
+                }
+            }
+            return new BlocoArray(valores, k);
+        }
+
+        /** Volta para array quando o resultado ficou esparso. */
+        private static Bloco normalizar(long[] palavras) {
+            int n = 0;
+            for (long p : palavras) n += Long.bitCount(p);
+            BlocoBits b = new BlocoBits(palavras, n);
+            return n <= LIMITE_ARRAY ? b.paraArray() : b;
+        }
+    }
+}
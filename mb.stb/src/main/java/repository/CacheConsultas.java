@@ -0,0 +1,74 @@
+package repository;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Musica;
+
+/**
+ * Cache LRU de resultados de busca, indexado pela própria {@link Consulta}.
+ * <p>
+ * Como o resultado de uma consulta é exatamente o conjunto das músicas que ela aceita,
+ * a invalidação é precisa: quando uma música entra ou sai, só caem as entradas cuja
+ * consulta a aceita. Uma inclusão de rock não descarta a busca por "pop". Como as
+ * edições trocam a instância, uma edição descarta as entradas que continham a versão
+ * antiga ou passariam a conter a nova; as demais continuam válidas.
+ * </p>
+ * <p>
+ * As listas guardadas são imutáveis e compartilhadas entre os chamadores. A
+ * {@link BibliotecaMusical} consulta e preenche o cache sob o lock de leitura e o
+ * invalida sob o de escrita; a sincronização daqui só protege o mapa entre leitores.
+ * </p>
+ */
+final class CacheConsultas {
+
+    private final int capacidade;
+    private final Map<Consulta, List<Musica>> entradas;
+    private long acertos;
+    private long falhas;
+
+    CacheConsultas(int capacidade) {
+        this.capacidade = capacidade;
+        this.entradas = new LinkedHashMap<>(Math.min(capacidade, 64), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Consulta, List<Musica>> maisAntiga) {
+                return size() > CacheConsultas.this.capacidade;
+            }
+        };
+    }
+
+    /** @return o resultado guardado, ou null (contando uma falha) */
+    synchronized List<Musica> obter(Consulta consulta) {
+        List<Musica> r = entradas.get(consulta);
+        if (r != null) acertos++;
+        else falhas++;
+        return r;
+    }
+
+    synchronized void guardar(Consulta consulta, List<Musica> resultado) {
+        entradas.put(consulta, resultado);
+    }
+
+    /** Inclusão ou remoção: descarta as entradas cujo resultado contém (ou passaria a conter) a música. */
+    synchronized void invalidar(Musica m) {
+        if (entradas.isEmpty()) return;
+        for (Iterator<Consulta> it = entradas.keySet().iterator(); it.hasNext(); ) {
+            if (it.next().aceita(m)) it.remove();
+        }
+    }
+
+    /** Edição: descarta as entradas que continham a versão antiga ou passariam a conter a nova. */
+    synchronized void invalidarEdicao(Musica antes, Musica depois) {
+        if (entradas.isEmpty()) return;
+        for (Iterator<Consulta> it = entradas.keySet().iterator(); it.hasNext(); ) {
+            Consulta c = it.next();
+            if (c.aceita(antes) || c.aceita(depois)) it.remove();
+        }
+    }
+
+    synchronized EstatisticasCache estatisticas() {
+        return new EstatisticasCache(acertos, falhas, entradas.size());
+    }
+}
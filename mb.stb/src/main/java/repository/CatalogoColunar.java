@@ -0,0 +1,141 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Musica;
+
+/**
+ * Colunas primitivas de artista, álbum e duração, indexadas pelo mesmo número
+ * de linha da {@link TabelaLinhas}.
+ * <p>
+ * Não substitui a tabela de objetos: a API da {@link BibliotecaMusical} devolve as
+ * próprias instâncias de {@link Musica} (listas, cache, edições copy-on-write), e
+ * remontá-las a partir das colunas a cada resultado criaria objetos novos e quebraria
+ * a identidade que os chamadores veem. As colunas ficam ao lado e guardam só o que as
+ * varreduras leem: três {@code int} por linha. O ID e o título não são copiados, e
+ * os valores do dicionário são as mesmas strings canônicas das músicas.
+ * </p>
+ * <p>
+ * Artista e álbum viram códigos de um dicionário local. Um filtro por
+ * substring testa cada valor distinto uma única vez e depois percorre só um
+ * {@code int[]}, sem visitar objetos {@link Musica} nem Strings; agregações sobre a
+ * duração são um laço sobre outro {@code int[]}. Linhas removidas têm código -1.
+ * O gênero não tem coluna: o {@link IndiceBitmap} já responde essas buscas exatamente.
+ * Não é thread-safe por si: a {@link BibliotecaMusical} só o acessa sob seu lock.
+ * </p>
+ */
+final class CatalogoColunar {
+
+    enum Coluna { ARTISTA, ALBUM }
+
+    private static final int LAPIDE = -1;
+
+    private int[] duracao = new int[16];
+    private int[] artista = new int[16];
+    private int[] album = new int[16];
+    /** Uma linha além da última preenchida. */
+    private int limite;
+
+    private final Map<String, Integer> codigos = new HashMap<>();
+    private final List<String> minusculos = new ArrayList<>();
+
+    void definir(int linha, Musica m) {
+        garantirCapacidade(linha + 1);
+        duracao[linha] = m.getDuracaoSegundos();
+        artista[linha] = codigo(m.getArtista());
+        album[linha] = codigo(m.getAlbum());
+        if (linha >= limite) {
+            // Linhas puladas (não deveria acontecer com a TabelaLinhas) ficam como lápides
+            Arrays.fill(artista, limite, linha, LAPIDE);
+            Arrays.fill(album, limite, linha, LAPIDE);
+            limite = linha + 1;
+        }
+    }
+
+    void remover(int linha) {
+        artista[linha] = LAPIDE;
+        album[linha] = LAPIDE;
+    }
+
+    /** Descarta todas as linhas e o dicionário (valores antigos de edições saem junto). */
+    void limpar() {
+        limite = 0;
+        codigos.clear();
+        minusculos.clear();
+    }
+
+    /** Linhas vivas, em ordem, cujo valor na coluna contém o termo (já em minúsculas). */
+    int[] filtrarContem(Coluna coluna, String termoMinusculo) {
+        boolean[] aceitos = new boolean[minusculos.size()];
+        boolean algum = false;
+        for (int c = 0; c < aceitos.length; c++) {
+            aceitos[c] = minusculos.get(c).contains(termoMinusculo);
+            algum |= aceitos[c];
+        }
+        return algum ? filtrar(coluna, aceitos) : new int[0];
+    }
+
+    /** Linhas vivas, em ordem, cujo valor na coluna é igual ao termo (já em minúsculas). */
+    int[] filtrarIgual(Coluna coluna, String termoMinusculo) {
+        boolean[] aceitos = new boolean[minusculos.size()];
+        boolean algum = false;
+        for (int c = 0; c < aceitos.length; c++) {
+            aceitos[c] = minusculos.get(c).equals(termoMinusculo);
+            algum |= aceitos[c];
+        }
+        return algum ? filtrar(coluna, aceitos) : new int[0];
+    }
+
+    /** Percorre só o array de códigos da coluna. */
+    private int[] filtrar(Coluna coluna, boolean[] aceitos) {
+        int[] codigosDaColuna = coluna(coluna);
+        int[] resultado = new int[16];
+        int n = 0;
+        for (int linha = 0; linha < limite; linha++) {
+            int c = codigosDaColuna[linha];
+            if (c != LAPIDE && aceitos[c]) {
+                if (n == resultado.length) resultado = Arrays.copyOf(resultado, n * 2);
+                resultado[n++] = linha;
+            }
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /** Soma das durações das linhas vivas. */
+    long somaDuracao() {
+        long soma = 0;
+        for (int linha = 0; linha < limite; linha++) {
+            if (artista[linha] != LAPIDE) soma += duracao[linha];
+        }
+        return soma;
+    }
+
+    private int[] coluna(Coluna coluna) {
+        return switch (coluna) {
+            case ARTISTA -> artista;
+            case ALBUM -> album;
+        };
+    }
+
+    private int codigo(String valor) {
+        Integer c = codigos.get(valor);
+        if (c == null) {
+            c = minusculos.size();
+            codigos.put(valor, c);
+            minusculos.add(valor.toLowerCase());
+        }
+        return c;
+    }
+
+    private void garantirCapacidade(int tamanho) {
+        if (tamanho <= duracao.length) return;
+        int nova = Math.max(tamanho, duracao.length * 2);
+        duracao = Arrays.copyOf(duracao, nova);
+        artista = Arrays.copyOf(artista, nova);
+        album = Arrays.copyOf(album, nova);
+    }
+}
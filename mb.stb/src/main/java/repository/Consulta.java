@@ -0,0 +1,130 @@
+package repository;
+
+import java.util.List;
+import java.util.function.Function;
+
+import model.Musica;
+
+/**
+ * Consulta com vários critérios sobre o catálogo, combináveis com E/OU/NÃO.
+ * <p>
+ * Comparações de texto são case-insensitive, com a mesma normalização das buscas
+ * simples ({@code toLowerCase()}). A consulta só descreve o filtro:
+ * {@link BibliotecaMusical#buscar(Consulta)} decide quais índices usar.
+ * </p>
+ * Exemplo: {@code Consulta.e(Consulta.contem(Campo.ARTISTA, "queen"), Consulta.duracaoEntre(300, 600))}
+ */
+public sealed interface Consulta {
+
+    enum Campo {
+        TITULO(Musica::getTitulo),
+        ARTISTA(Musica::getArtista),
+        ALBUM(Musica::getAlbum),
+        GENERO(Musica::getGenero);
+
+        private final Function<Musica, String> leitor;
+
+        Campo(Function<Musica, String> leitor) {
+            this.leitor = leitor;
+        }
+
+        String valor(Musica m) {
+            return leitor.apply(m);
+        }
+    }
+
+    /** Verifica a consulta diretamente sobre uma música. */
+    boolean aceita(Musica m);
+
+    /** Campo contém o termo. */
+    record Contem(Campo campo, String termo) implements Consulta {
+        public Contem {
+            termo = termo == null ? "" : termo.toLowerCase();
+        }
+
+        @Override
+        public boolean aceita(Musica m) {
+            String v = campo.valor(m);
+            return v != null && v.toLowerCase().contains(termo);
+        }
+    }
+
+    /** Campo igual ao valor. */
+    record Igual(Campo campo, String valor) implements Consulta {
+        public Igual {
+            valor = valor == null ? "" : valor.trim().toLowerCase();
+        }
+
+        @Override
+        public boolean aceita(Musica m) {
+            String v = campo.valor(m);
+            return v != null && v.toLowerCase().equals(valor);
+        }
+    }
+
+    /** Duração em [min, max] segundos. */
+    record DuracaoEntre(int min, int max) implements Consulta {
+        @Override
+        public boolean aceita(Musica m) {
+            return m.getDuracaoSegundos() >= min && m.getDuracaoSegundos() <= max;
+        }
+    }
+
+    /** Todas as subconsultas. */
+    record E(List<Consulta> partes) implements Consulta {
+        public E {
+            partes = List.copyOf(partes);
+        }
+
+        @Override
+        public boolean aceita(Musica m) {
+            for (Consulta c : partes) if (!c.aceita(m)) return false;
+            return true;
+        }
+    }
+
+    /** Pelo menos uma das subconsultas. */
+    record Ou(List<Consulta> partes) implements Consulta {
+        public Ou {
+            partes = List.copyOf(partes);
+        }
+
+        @Override
+        public boolean aceita(Musica m) {
+            for (Consulta c : partes) if (c.aceita(m)) return true;
+            return false;
+        }
+    }
+
+    /** A subconsulta não é satisfeita. */
+    record Nao(Consulta parte) implements Consulta {
+        @Override
+        public boolean aceita(Musica m) {
+            return !parte.aceita(m);
+        }
+    }
+
+    static Consulta contem(Campo campo, String termo) {
+        return new Contem(campo, termo);
+    }
+
+    static Consulta igual(Campo campo, String valor) {
+        return new Igual(campo, valor);
+    }
+
+    static Consulta duracaoEntre(int min, int max) {
+        return new DuracaoEntre(min, max);
+    }
+
+    static Consulta e(Consulta... partes) {
+        return new E(List.of(partes));
+    }
+
+    static Consulta ou(Consulta... partes) {
+        return new Ou(List.of(partes));
+    }
+
+    static Consulta nao(Consulta parte) {
+        return new Nao(parte);
+    }
+}
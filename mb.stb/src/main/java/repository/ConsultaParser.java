@@ -0,0 +1,220 @@
+package repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import exception.RegraNegocioException;
+
+/**
+ * Converte o texto digitado na busca em uma {@link Consulta}.
+ *
+ * <pre>
+ * artista:queen genero:rock duracao&gt;300 "bohemian"
+ * </pre>
+ * <ul>
+ *   <li>{@code campo:valor} — o campo contém o valor; {@code campo=valor} — igual ao valor.
+ *       Campos: titulo, artista, album, genero (com ou sem acento).</li>
+ *   <li>{@code duracao>N}, {@code >=}, {@code <}, {@code <=}, {@code duracao:N-M} ou {@code duracao=N};
+ *       N em segundos ou {@code m:ss}. Sozinhos, {@code >N}, {@code <N} e {@code N-M} também são faixas.</li>
+ *   <li>Termo solto ou {@code "frase entre aspas"} — título, artista ou gênero contém o texto.</li>
+ *   <li>Termos lado a lado são combinados com E; {@code OR} (ou {@code |}) separa alternativas.</li>
+ *   <li>{@code -termo} exclui o que casa com o termo, por exemplo {@code -genero=pop}.</li>
+ * </ul>
+ * As consultas compiladas são imutáveis e ficam num cache LRU: repetir a mesma
+ * busca não interpreta o texto de novo.
+ */
+public final class ConsultaParser {
+
+    private static final int TAMANHO_CACHE = 256;
+
+    private static final Map<String, Consulta> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Consulta> maisAntiga) {
+            return size() > TAMANHO_CACHE;
+        }
+    };
+
+    private ConsultaParser() {
+    }
+
+    /**
+     * @return a consulta compilada, ou null se o texto estiver vazio (tudo casa)
+     * @throws RegraNegocioException se a sintaxe for inválida
+     */
+    public static Consulta interpretar(String texto) {
+        String chave = texto == null ? "" : texto.trim();
+        if (chave.isEmpty()) return null;
+        synchronized (CACHE) {
+            Consulta c = CACHE.get(chave);
+            if (c != null) return c;
+        }
+        Consulta compilada = compilar(chave);
+        synchronized (CACHE) {
+            CACHE.put(chave, compilada);
+        }
+        return compilada;
+    }
+
+    /**
+     * Valor que {@link #interpretar(String)} lê como uma única frase, sem operadores,
+     * faixas ou OR: para textos vindos do catálogo, como sugestões e facetas. A sintaxe
+     * não tem escape para aspas, então as do valor são descartadas.
+     */
+    public static String literal(String valor) {
+        return "\"" + valor.replace("\"", "") + "\"";
+    }
+
+    // ======== COMPILAÇÃO ========
+
+    /** Token com a informação de ter vindo inteiro entre aspas (aí é sempre texto literal). */
+    private record Token(String texto, boolean literal) {
+    }
+
+    private static Consulta compilar(String texto) {
+        List<Consulta> alternativas = new ArrayList<>();
+        List<Consulta> grupo = new ArrayList<>();
+        for (Token t : tokenizar(texto)) {
+            if (!t.literal() && (t.texto().equals("OR") || t.texto().equals("|"))) {
+                if (grupo.isEmpty()) throw new RegraNegocioException("OR sem termo antes dele.");
+                alternativas.add(combinarE(grupo));
+                grupo = new ArrayList<>();
+            } else {
+                grupo.add(termo(t));
+            }
+        }
+        if (grupo.isEmpty()) throw new RegraNegocioException("OR sem termo depois dele.");
+        alternativas.add(combinarE(grupo));
+        return alternativas.size() == 1 ? alternativas.get(0) : new Consulta.Ou(alternativas);
+    }
+
+    private static Consulta combinarE(List<Consulta> partes) {
+        return partes.size() == 1 ? partes.get(0) : new Consulta.E(partes);
+    }
+
+    private static Consulta termo(Token t) {
+        String s = t.texto();
+        if (t.literal()) return qualquerCampo(s);
+        if (s.length() > 1 && s.charAt(0) == '-') return Consulta.nao(termo(new Token(s.substring(1), false)));
+
+        int op = indiceOperador(s);
+        if (op > 0) {
+            String nome = normalizar(s.substring(0, op));
+            String operador = s.startsWith(">=", op) || s.startsWith("<=", op) ? s.substring(op, op + 2) : s.substring(op, op + 1);
+            String valor = s.substring(op + operador.length());
+            if (nome.equals("duracao")) return duracao(operador, valor);
+            Consulta.Campo campo = campo(nome);
+            if (campo != null) {
+                if (valor.isEmpty()) throw new RegraNegocioException("Valor vazio para o campo " + nome + ".");
+                return switch (operador) {
+                    case ":" -> Consulta.contem(campo, valor);
+                    case "=" -> Consulta.igual(campo, valor);
+                    default -> throw new RegraNegocioException("Operador " + operador + " só vale para duração.");
+                };
+            }
+        }
+
+        // Atalhos de faixa de duração sem o nome do campo: >10:00, <90, 3:00-5:00
+        Consulta faixa = faixaSolta(s);
+        return faixa != null ? faixa : qualquerCampo(s);
+    }
+
+    private static Consulta qualquerCampo(String termo) {
+        return Consulta.ou(
+                Consulta.contem(Consulta.Campo.TITULO, termo),
+                Consulta.contem(Consulta.Campo.ARTISTA, termo),
+                Consulta.contem(Consulta.Campo.GENERO, termo));
+    }
+
+    private static Consulta duracao(String operador, String valor) {
+        try {
+            return switch (operador) {
+                case ">" -> Consulta.duracaoEntre(segundos(valor) + 1, Integer.MAX_VALUE);
+                case ">=" -> Consulta.duracaoEntre(segundos(valor), Integer.MAX_VALUE);
+                case "<" -> Consulta.duracaoEntre(0, segundos(valor) - 1);
+                case "<=" -> Consulta.duracaoEntre(0, segundos(valor));
+                default -> {
+                    int hifen = valor.indexOf('-');
+                    yield hifen > 0
+                            ? Consulta.duracaoEntre(segundos(valor.substring(0, hifen)), segundos(valor.substring(hifen + 1)))
+                            : Consulta.duracaoEntre(segundos(valor), segundos(valor));
+                }
+            };
+        } catch (NumberFormatException e) {
+            throw new RegraNegocioException("Duração inválida: " + valor + " (use segundos ou m:ss).");
+        }
+    }
+
+    private static Consulta faixaSolta(String s) {
+        try {
+            if (s.startsWith(">=") || s.startsWith("<=")) return duracao(s.substring(0, 2), s.substring(2));
+            if (s.startsWith(">") || s.startsWith("<")) return duracao(s.substring(0, 1), s.substring(1));
+            int hifen = s.indexOf('-');
+            if (hifen > 0) return Consulta.duracaoEntre(segundos(s.substring(0, hifen)), segundos(s.substring(hifen + 1)));
+        } catch (NumberFormatException | RegraNegocioException e) {
+            // não é uma faixa: vira busca textual
+        }
+        return null;
+    }
+
+    /** "m:ss" ou segundos. */
+    private static int segundos(String valor) {
+        String v = valor.trim();
+        int dois = v.indexOf(':');
+        if (dois < 0) return Integer.parseInt(v);
+        return Integer.parseInt(v.substring(0, dois)) * 60 + Integer.parseInt(v.substring(dois + 1));
+    }
+
+    private static int indiceOperador(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ':' || c == '=' || c == '>' || c == '<') return i;
+        }
+        return -1;
+    }
+
+    private static Consulta.Campo campo(String nome) {
+        return switch (nome) {
+            case "titulo" -> Consulta.Campo.TITULO;
+            case "artista" -> Consulta.Campo.ARTISTA;
+            case "album" -> Consulta.Campo.ALBUM;
+            case "genero" -> Consulta.Campo.GENERO;
+            default -> null;
+        };
+    }
+
+    /** Minúsculas e sem acentos, para aceitar "título", "Gênero" etc. */
+    private static String normalizar(String nome) {
+        return Normalizer.normalize(nome.toLowerCase(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+    }
+
+    /** Separa por espaços, respeitando trechos entre aspas (que podem aparecer após {@code campo:}). */
+    private static List<Token> tokenizar(String texto) {
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean emAspas = false;
+        boolean comecouComAspas = false;
+        boolean temToken = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"') {
+                if (!temToken) comecouComAspas = true;
+                emAspas = !emAspas;
+                temToken = true;
+            } else if (Character.isWhitespace(c) && !emAspas) {
+                if (temToken) tokens.add(new Token(atual.toString(), comecouComAspas));
+                atual.setLength(0);
+                temToken = false;
+                comecouComAspas = false;
+            } else {
+                atual.append(c);
+                temToken = true;
+            }
+        }
+        if (emAspas) throw new RegraNegocioException("Aspas sem fechamento na consulta.");
+        if (temToken) tokens.add(new Token(atual.toString(), comecouComAspas));
+        return tokens;
+    }
+}
@@ -0,0 +1,82 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Musica;
+
+/**
+ * Quantas músicas há por artista, álbum e gênero, atualizado a cada inclusão e remoção.
+ * <p>
+ * Cada contador é um {@code int[1]} dentro do mapa, então atualizar é um lookup e um
+ * incremento, sem caixas de Integer. Uma edição é uma remoção seguida de uma inclusão,
+ * o que move a música de um gênero para outro. Valores vazios (álbum opcional) não
+ * entram na contagem. Não é thread-safe por si: a {@link BibliotecaMusical} só o
+ * acessa sob seu lock.
+ * </p>
+ */
+final class ContagemFacetas {
+
+    private final Map<String, int[]> porArtista = new HashMap<>();
+    private final Map<String, int[]> porAlbum = new HashMap<>();
+    private final Map<String, int[]> porGenero = new HashMap<>();
+
+    void adicionar(Musica m) {
+        incrementar(porArtista, m.getArtista());
+        incrementar(porAlbum, m.getAlbum());
+        incrementar(porGenero, m.getGenero());
+    }
+
+    void remover(Musica m) {
+        decrementar(porArtista, m.getArtista());
+        decrementar(porAlbum, m.getAlbum());
+        decrementar(porGenero, m.getGenero());
+    }
+
+    void limpar() {
+        porArtista.clear();
+        porAlbum.clear();
+        porGenero.clear();
+    }
+
+    /** Cópia das contagens do campo, da maior para a menor. */
+    Map<String, Integer> contagens(Consulta.Campo campo) {
+        Map<String, int[]> mapa = switch (campo) {
+            case ARTISTA -> porArtista;
+            case ALBUM -> porAlbum;
+            case GENERO -> porGenero;
+            case TITULO -> throw new IllegalArgumentException("Título não é uma faceta.");
+        };
+        List<Map.Entry<String, int[]>> entradas = new ArrayList<>(mapa.entrySet());
+        entradas.sort(Comparator.<Map.Entry<String, int[]>>comparingInt(e -> -e.getValue()[0])
+                .thenComparing(Map.Entry::getKey, String.CASE_INSENSITIVE_ORDER));
+        Map<String, Integer> resultado = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> e : entradas) resultado.put(e.getKey(), e.getValue()[0]);
+        return resultado;
+    }
+
+    /** Contagens do campo só entre as músicas informadas (por exemplo, o resultado de uma busca). */
+    static Map<String, Integer> contagens(Consulta.Campo campo, Collection<Musica> musicas) {
+        ContagemFacetas parcial = new ContagemFacetas();
+        for (Musica m : musicas) {
+            if (m != null) parcial.adicionar(m);
+        }
+        return parcial.contagens(campo);
+    }
+
+    private static void incrementar(Map<String, int[]> mapa, String valor) {
+        if (valor == null || valor.isEmpty()) return;
+        mapa.computeIfAbsent(valor, k -> new int[1])[0]++;
+    }
+
+    private static void decrementar(Map<String, int[]> mapa, String valor) {
+        if (valor == null || valor.isEmpty()) return;
+        int[] n = mapa.get(valor);
+        if (n != null && --n[0] == 0) mapa.remove(valor);
+    }
+}
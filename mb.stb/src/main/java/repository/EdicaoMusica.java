@@ -0,0 +1,10 @@
+package repository;
+
+import java.util.UUID;
+
+/**
+ * Edição de uma música usada nas operações em lote.
+ * Campos nulos mantêm o valor atual, como em {@link BibliotecaMusical#editarMusica}.
+ */
+public record EdicaoMusica(UUID id, String titulo, String artista, String album, String genero, Integer duracao) {
+}
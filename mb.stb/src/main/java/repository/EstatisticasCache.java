@@ -0,0 +1,23 @@
+package repository;
+
+/**
+ * Contadores do cache de buscas da {@link BibliotecaMusical}, desde a sua criação.
+ *
+ * @param acertos  buscas respondidas pelo cache
+ * @param falhas   buscas que precisaram consultar os índices
+ * @param entradas resultados guardados no momento
+ */
+public record EstatisticasCache(long acertos, long falhas, int entradas) {
+
+    /** Fração das buscas respondidas pelo cache, entre 0 e 1. */
+    public double taxaDeAcerto() {
+        long total = acertos + falhas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache: %d acertos, %d falhas (%.0f%%), %d entradas",
+                acertos, falhas, taxaDeAcerto() * 100, entradas);
+    }
+}
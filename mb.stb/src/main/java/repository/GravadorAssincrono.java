@@ -0,0 +1,147 @@
+package repository;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import model.Musica;
+import persistence.FileStorage;
+import persistence.Mutacao;
+
+/**
+ * Persistência write-behind: as mutações entram numa fila em memória e uma thread
+ * dedicada as grava depois de uma janela de tempo.
+ * <p>
+ * Mutações do mesmo ID dentro da janela se fundem (a última vence), então uma
+ * rajada de operações vira uma única gravação. A janela conta a partir da primeira
+ * mutação pendente e não é renovada por novas mutações: nenhuma alteração fica mais
+ * que {@code janela} sem ir para o disco.
+ * </p>
+ * <p>
+ * Nenhum lock da {@link BibliotecaMusical} é tomado dentro de {@code gravacao}: com
+ * storage não incremental o snapshot é lido antes, porque {@code listarTodas()} pode
+ * esperar o lock de leitura enquanto quem segura o de escrita espera a gravação.
+ * </p>
+ */
+final class GravadorAssincrono implements AutoCloseable {
+
+    private final FileStorage storage;
+    /** Estado completo atual, usado quando o storage não é incremental. */
+    private final Supplier<List<Musica>> snapshot;
+    private final long janelaNanos;
+    private final ScheduledThreadPoolExecutor gravador;
+
+    /** Mutações ainda não gravadas, na ordem em que cada ID apareceu. Guardado por {@code this}. */
+    private Map<UUID, Mutacao> pendentes = new LinkedHashMap<>();
+    private boolean agendado;
+    private boolean fechado;
+    /** Numeração das drenagens com snapshot. Guardado por {@code this}. */
+    private long drenagens;
+
+    /** Serializa as gravações para que os lotes cheguem ao disco na ordem em que foram drenados. */
+    private final Object gravacao = new Object();
+    /** Drenagem do último snapshot gravado. Escrito só dentro de {@code gravacao}. */
+    private volatile long gravada;
+
+    GravadorAssincrono(FileStorage storage, Supplier<List<Musica>> snapshot, Duration janela) {
+        this.storage = storage;
+        this.snapshot = snapshot;
+        this.janelaNanos = janela.toNanos();
+        this.gravador = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "BibliotecaMusical-gravador");
+            t.setDaemon(true);
+            return t;
+        });
+        // No close() a janela agendada é descartada; a gravação em andamento termina
+        gravador.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /** Enfileira as mutações sem tocar no disco; depois de {@link #close()} grava na hora. */
+    void enfileirar(List<Mutacao> mutacoes) {
+        if (mutacoes.isEmpty()) return;
+        synchronized (this) {
+            for (Mutacao m : mutacoes) fundir(m);
+            if (!fechado) {
+                if (!agendado) {
+                    agendado = true;
+                    gravador.schedule(this::flush, janelaNanos, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+        }
+        // Fechado: grava na hora, pela fila, junto com o que close() ainda não drenou
+        flush();
+    }
+
+    /**
+     * Última mutação vence. A exceção é uma inclusão que segue uma remoção do mesmo
+     * ID: ela vai para o fim da fila, como a música foi para o fim da lista.
+     */
+    private void fundir(Mutacao m) {
+        Mutacao anterior = pendentes.get(m.id());
+        if (anterior != null && anterior.tipo() == Mutacao.Tipo.REMOCAO && m.tipo() == Mutacao.Tipo.INCLUSAO) {
+            pendentes.remove(m.id());
+        }
+        pendentes.put(m.id(), m);
+    }
+
+    /** Grava tudo o que está pendente e só retorna quando estiver no disco. */
+    void flush() {
+        if (storage.isIncremental()) {
+            // Journal: drenar dentro de gravacao mantém os lotes na ordem
+            synchronized (gravacao) {
+                List<Mutacao> lote = drenar();
+                if (!lote.isEmpty()) storage.registrar(lote);
+            }
+            return;
+        }
+        // Sem nada a drenar, o alvo é a última drenagem: ela pode ter saído da fila
+        // pela thread de gravação e ainda não ter chegado ao disco
+        long drenagem;
+        synchronized (this) {
+            drenagem = drenar().isEmpty() ? drenagens : ++drenagens;
+        }
+        if (drenagem <= gravada) return;
+        // Lido depois da drenagem, o snapshot contém todas as mutações drenadas até o alvo
+        List<Musica> estado = snapshot.get();
+        synchronized (gravacao) {
+            // Um snapshot de drenagem posterior já contém este: gravá-lo depois voltaria no tempo
+            if (drenagem > gravada) {
+                storage.salvar(estado);
+                gravada = drenagem;
+            }
+        }
+    }
+
+    private synchronized List<Mutacao> drenar() {
+        agendado = false;
+        if (pendentes.isEmpty()) return List.of();
+        List<Mutacao> lote = new ArrayList<>(pendentes.values());
+        pendentes = new LinkedHashMap<>();
+        return lote;
+    }
+
+    /**
+     * Espera a gravação em andamento, grava o que falta e encerra a thread; mutações
+     * posteriores passam a ser gravadas na hora.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            fechado = true;
+        }
+        gravador.shutdown();
+        try {
+            gravador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
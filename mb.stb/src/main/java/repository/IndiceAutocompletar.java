@@ -0,0 +1,59 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Termos (títulos, artistas e gêneros) ordenados pela forma normalizada,
+ * para completar prefixos digitados.
+ * <p>
+ * Uma busca por prefixo é um {@code tailMap} seguido de no máximo N passos:
+ * O(log n + N), independente do tamanho do catálogo. Não é thread-safe por si:
+ * a {@link BibliotecaMusical} só o acessa sob seu lock de leitura/escrita.
+ * </p>
+ */
+final class IndiceAutocompletar {
+
+    /** Forma exibida (primeira vista) e quantas vezes o termo aparece no catálogo. */
+    private static final class Termo {
+        final String exibicao;
+        int ocorrencias;
+
+        Termo(String exibicao) {
+            this.exibicao = exibicao;
+        }
+    }
+
+    private final TreeMap<String, Termo> termos = new TreeMap<>();
+
+    void adicionar(String valor) {
+        if (valor == null || valor.isBlank()) return;
+        termos.computeIfAbsent(valor.toLowerCase(), k -> new Termo(valor)).ocorrencias++;
+    }
+
+    void remover(String valor) {
+        if (valor == null || valor.isBlank()) return;
+        String chave = valor.toLowerCase();
+        Termo t = termos.get(chave);
+        if (t != null && --t.ocorrencias == 0) termos.remove(chave);
+    }
+
+    void limpar() {
+        termos.clear();
+    }
+
+    /** Até {@code limite} termos que começam com o prefixo (case-insensitive), em ordem alfabética. */
+    List<String> sugerir(String prefixo, int limite) {
+        List<String> sugestoes = new ArrayList<>();
+        if (prefixo == null || prefixo.isBlank() || limite <= 0) return sugestoes;
+
+        String p = prefixo.trim().toLowerCase();
+        for (Map.Entry<String, Termo> e : termos.tailMap(p, true).entrySet()) {
+            if (!e.getKey().startsWith(p) || sugestoes.size() == limite) break;
+            sugestoes.add(e.getValue().exibicao);
+        }
+        return sugestoes;
+    }
+}
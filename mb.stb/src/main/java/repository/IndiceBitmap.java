@@ -0,0 +1,51 @@
+package repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice de bitmaps para campos com poucos valores distintos, como o gênero.
+ * <p>
+ * Cada valor, em minúsculas, aponta para um {@link BitmapCompactado} com as linhas que o
+ * têm. Diferente dos trigramas, o resultado é exato: {@link #igual} é um lookup, e
+ * {@link #contem} percorre só os valores distintos (não as músicas) e une os bitmaps
+ * dos que contêm o termo. Por ser exato, também pode ser subtraído de outro conjunto.
+ * </p>
+ */
+final class IndiceBitmap {
+
+    private final Map<String, BitmapCompactado> porValor = new HashMap<>();
+
+    void adicionar(int linha, String valor) {
+        if (valor == null) return;
+        porValor.computeIfAbsent(valor.toLowerCase(), k -> new BitmapCompactado()).adicionar(linha);
+    }
+
+    void remover(int linha, String valor) {
+        if (valor == null) return;
+        String chave = valor.toLowerCase();
+        BitmapCompactado b = porValor.get(chave);
+        if (b == null) return;
+        b.remover(linha);
+        if (b.vazio()) porValor.remove(chave);
+    }
+
+    void limpar() {
+        porValor.clear();
+    }
+
+    /** Linhas cujo valor é igual ao informado (já em minúsculas). É o bitmap do índice: só para leitura. */
+    BitmapCompactado igual(String valorMinusculo) {
+        BitmapCompactado b = porValor.get(valorMinusculo);
+        return b == null ? new BitmapCompactado() : b;
+    }
+
+    /** Linhas cujo valor contém o termo (já em minúsculas). */
+    BitmapCompactado contem(String termoMinusculo) {
+        BitmapCompactado resultado = new BitmapCompactado();
+        for (Map.Entry<String, BitmapCompactado> e : porValor.entrySet()) {
+            if (e.getKey().contains(termoMinusculo)) resultado = BitmapCompactado.ou(resultado, e.getValue());
+        }
+        return resultado;
+    }
+}
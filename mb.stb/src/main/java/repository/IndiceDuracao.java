@@ -0,0 +1,65 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Índice ordenado por duração para consultas por faixa.
+ * <p>
+ * Cada entrada é um {@code long} {@code duração << 32 | linha}, mantido num array
+ * ordenado: uma faixa é localizada por duas buscas binárias e lida de forma
+ * contígua, em O(log n + k). Empates de duração saem em ordem de linha, ou seja,
+ * de inserção. Inclusões e remoções deslocam o trecho posterior do array; cargas
+ * inteiras usam {@link #reconstruir(int[], int[], int)}, que ordena uma única vez.
+ * </p>
+ */
+final class IndiceDuracao {
+
+    private long[] entradas = new long[16];
+    private int tamanho;
+
+    void adicionar(int linha, int duracao) {
+        long chave = chave(duracao, linha);
+        int pos = Arrays.binarySearch(entradas, 0, tamanho, chave);
+        if (pos >= 0) return;
+        pos = -pos - 1;
+        if (tamanho == entradas.length) entradas = Arrays.copyOf(entradas, tamanho * 2);
+        System.arraycopy(entradas, pos, entradas, pos + 1, tamanho - pos);
+        entradas[pos] = chave;
+        tamanho++;
+    }
+
+    void remover(int linha, int duracao) {
+        int pos = Arrays.binarySearch(entradas, 0, tamanho, chave(duracao, linha));
+        if (pos < 0) return;
+        System.arraycopy(entradas, pos + 1, entradas, pos, tamanho - pos - 1);
+        tamanho--;
+    }
+
+    /** Substitui todo o conteúdo: {@code linhas[i]} tem duração {@code duracoes[i]}. */
+    void reconstruir(int[] linhas, int[] duracoes, int quantidade) {
+        entradas = new long[Math.max(16, quantidade)];
+        for (int i = 0; i < quantidade; i++) entradas[i] = chave(duracoes[i], linhas[i]);
+        tamanho = quantidade;
+        Arrays.sort(entradas, 0, tamanho);
+    }
+
+    /** Linhas com duração em [min, max], ordenadas por duração. */
+    int[] linhasEntre(int min, int max) {
+        if (min > max) return new int[0];
+        int ini = limiteInferior(chave(min, 0));
+        int fim = max == Integer.MAX_VALUE ? tamanho : limiteInferior(chave(max + 1, 0));
+        int[] linhas = new int[fim - ini];
+        for (int i = ini; i < fim; i++) linhas[i - ini] = (int) entradas[i];
+        return linhas;
+    }
+
+    /** Primeira posição com entrada >= chave. */
+    private int limiteInferior(long chave) {
+        int pos = Arrays.binarySearch(entradas, 0, tamanho, chave);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private static long chave(int duracao, int linha) {
+        return ((long) duracao << 32) | (linha & 0xFFFFFFFFL);
+    }
+}
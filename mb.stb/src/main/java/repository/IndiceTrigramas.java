@@ -0,0 +1,83 @@
+package repository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice invertido de trigramas para busca por substring em um campo.
+ * <p>
+ * Cada valor é indexado em minúsculas (mesma normalização de {@code String.toLowerCase()}
+ * usada nas buscas). Se o termo contém um trigrama, toda linha que casa com
+ * {@code contains} também o contém; então a interseção das postagens é um
+ * superconjunto exato dos resultados e basta verificar só esses candidatos.
+ * </p>
+ */
+final class IndiceTrigramas {
+
+    private final Map<Long, ListaLinhas> postagens = new HashMap<>();
+
+    void adicionar(int linha, String valor) {
+        for (long tri : trigramas(valor)) {
+            postagens.computeIfAbsent(tri, k -> new ListaLinhas()).adicionar(linha);
+        }
+    }
+
+    void remover(int linha, String valor) {
+        for (long tri : trigramas(valor)) {
+            ListaLinhas lista = postagens.get(tri);
+            if (lista == null) continue;
+            lista.remover(linha);
+            if (lista.isEmpty()) postagens.remove(tri);
+        }
+    }
+
+    void limpar() {
+        postagens.clear();
+    }
+
+    /**
+     * Linhas candidatas (ordenadas) para um termo já em minúsculas.
+     *
+     * @return null quando o termo tem menos de 3 caracteres e o índice não restringe nada
+     */
+    int[] candidatos(String termoMinusculo) {
+        long[] tris = trigramasNormalizados(termoMinusculo);
+        if (tris == null) return null;
+
+        ListaLinhas[] listas = new ListaLinhas[tris.length];
+        for (int i = 0; i < tris.length; i++) {
+            listas[i] = postagens.get(tris[i]);
+            if (listas[i] == null) return new int[0];
+        }
+        // Começa pela lista mais curta para que as interseções fiquem pequenas
+        Arrays.sort(listas, Comparator.comparingInt(ListaLinhas::tamanho));
+        int[] resultado = listas[0].paraArray();
+        for (int i = 1; i < listas.length && resultado.length > 0; i++) {
+            resultado = ListaLinhas.intersecao(resultado, listas[i]);
+        }
+        return resultado;
+    }
+
+    private static long[] trigramas(String valor) {
+        if (valor == null) return new long[0];
+        long[] tris = trigramasNormalizados(valor.toLowerCase());
+        return tris == null ? new long[0] : tris;
+    }
+
+    /** Trigramas distintos de um texto já normalizado; null se o texto for curto demais. */
+    private static long[] trigramasNormalizados(String s) {
+        if (s.length() < 3) return null;
+        long[] tris = new long[s.length() - 2];
+        for (int i = 0; i < tris.length; i++) {
+            tris[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        Arrays.sort(tris);
+        int n = 1;
+        for (int i = 1; i < tris.length; i++) {
+            if (tris[i] != tris[n - 1]) tris[n++] = tris[i];
+        }
+        return Arrays.copyOf(tris, n);
+    }
+}
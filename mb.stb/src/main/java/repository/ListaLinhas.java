@@ -0,0 +1,70 @@
+package repository;
+
+import java.util.Arrays;
+
+/**
+ * Lista ordenada e sem repetição de números de linha (int primitivo).
+ * Usada como lista de postagens dos índices: como as linhas novas sempre
+ * recebem o maior número, a inserção típica é um append O(1).
+ */
+final class ListaLinhas {
+
+    private int[] linhas = new int[4];
+    private int tamanho;
+
+    void adicionar(int linha) {
+        if (tamanho == 0 || linhas[tamanho - 1] < linha) {
+            garantirCapacidade();
+            linhas[tamanho++] = linha;
+            return;
+        }
+        int pos = Arrays.binarySearch(linhas, 0, tamanho, linha);
+        if (pos >= 0) return;
+        pos = -pos - 1;
+        garantirCapacidade();
+        System.arraycopy(linhas, pos, linhas, pos + 1, tamanho - pos);
+        linhas[pos] = linha;
+        tamanho++;
+    }
+
+    void remover(int linha) {
+        int pos = Arrays.binarySearch(linhas, 0, tamanho, linha);
+        if (pos < 0) return;
+        System.arraycopy(linhas, pos + 1, linhas, pos, tamanho - pos - 1);
+        tamanho--;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    int[] paraArray() {
+        return Arrays.copyOf(linhas, tamanho);
+    }
+
+    /** Interseção de duas listas ordenadas, preservando a ordem. */
+    static int[] intersecao(int[] a, ListaLinhas b) {
+        int[] out = new int[Math.min(a.length, b.tamanho)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.tamanho) {
+            if (a[i] == b.linhas[j]) {
+                out[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b.linhas[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void garantirCapacidade() {
+        if (tamanho == linhas.length) linhas = Arrays.copyOf(linhas, linhas.length * 2);
+    }
+}
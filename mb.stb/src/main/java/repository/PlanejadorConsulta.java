@@ -0,0 +1,200 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Escolhe, para cada parte de uma {@link Consulta}, o índice que restringe as linhas.
+ * <p>
+ * {@link #candidatos(Consulta)} devolve um superconjunto ordenado das linhas que
+ * satisfazem a consulta, ou null quando nenhum índice ajuda e é preciso varrer tudo.
+ * Num E, as partes indexáveis são intersectadas da menor para a maior, e as partes
+ * sem índice ficam para a verificação final; num OU, basta uma parte sem índice
+ * para cair na varredura. A verificação final ({@link Consulta#aceita}) é sempre
+ * feita pelo chamador, só sobre os candidatos.
+ * </p>
+ * <p>
+ * Critérios de gênero vêm do {@link IndiceBitmap}, que é exato: dentro de um E ou OU
+ * eles se combinam como operações de bitmap, e um NÃO sobre eles vira um
+ * {@link BitmapCompactado#eNao} em vez de deixar a exclusão para a verificação final.
+ * </p>
+ */
+final class PlanejadorConsulta {
+
+    private final IndiceTrigramas indiceTitulo;
+    private final IndiceTrigramas indiceArtista;
+    private final IndiceBitmap indiceGenero;
+    private final IndiceDuracao indiceDuracao;
+    /** Quando presente, substitui os trigramas de artista e também cobre o álbum. */
+    private final CatalogoColunar colunar;
+
+    PlanejadorConsulta(IndiceTrigramas indiceTitulo, IndiceTrigramas indiceArtista, IndiceBitmap indiceGenero,
+                       IndiceDuracao indiceDuracao, CatalogoColunar colunar) {
+        this.indiceTitulo = indiceTitulo;
+        this.indiceArtista = indiceArtista;
+        this.indiceGenero = indiceGenero;
+        this.indiceDuracao = indiceDuracao;
+        this.colunar = colunar;
+    }
+
+    int[] candidatos(Consulta consulta) {
+        return switch (consulta) {
+            case Consulta.Contem c -> porTexto(c.campo(), c.termo(), false);
+            case Consulta.Igual c -> porTexto(c.campo(), c.valor(), true);
+            case Consulta.DuracaoEntre d -> {
+                int[] linhas = indiceDuracao.linhasEntre(d.min(), d.max());
+                Arrays.sort(linhas); // o índice devolve por duração; o plano trabalha em ordem de linha
+                yield linhas;
+            }
+            case Consulta.E e -> intersectar(e.partes());
+            case Consulta.Ou o -> {
+                BitmapCompactado exato = exato(o);
+                yield exato != null ? exato.paraArray() : unir(o.partes());
+            }
+            // Sem o universo de linhas não há o que subtrair; só dentro de um E
+            case Consulta.Nao n -> null;
+        };
+    }
+
+    /** Linhas que satisfazem exatamente a consulta, quando só envolve índices exatos; senão null. */
+    private BitmapCompactado exato(Consulta consulta) {
+        return switch (consulta) {
+            case Consulta.Contem c when c.campo() == Consulta.Campo.GENERO -> indiceGenero.contem(c.termo());
+            case Consulta.Igual c when c.campo() == Consulta.Campo.GENERO -> indiceGenero.igual(c.valor());
+            case Consulta.E e -> combinarExatos(e.partes(), true);
+            case Consulta.Ou o -> combinarExatos(o.partes(), false);
+            default -> null;
+        };
+    }
+
+    private BitmapCompactado combinarExatos(List<Consulta> partes, boolean todas) {
+        BitmapCompactado resultado = null;
+        for (Consulta parte : partes) {
+            BitmapCompactado b = exato(parte);
+            if (b == null) return null;
+            resultado = resultado == null ? b : todas ? BitmapCompactado.e(resultado, b) : BitmapCompactado.ou(resultado, b);
+        }
+        return resultado;
+    }
+
+    private int[] porTexto(Consulta.Campo campo, String termoMinusculo, boolean exato) {
+        if (campo == Consulta.Campo.GENERO) {
+            return (exato ? indiceGenero.igual(termoMinusculo) : indiceGenero.contem(termoMinusculo)).paraArray();
+        }
+        if (colunar != null && campo != Consulta.Campo.TITULO) {
+            CatalogoColunar.Coluna coluna = switch (campo) {
+                case ARTISTA -> CatalogoColunar.Coluna.ARTISTA;
+                default -> CatalogoColunar.Coluna.ALBUM;
+            };
+            return exato ? colunar.filtrarIgual(coluna, termoMinusculo) : colunar.filtrarContem(coluna, termoMinusculo);
+        }
+        // Um valor igual ao termo também o contém, então os trigramas servem aos dois casos
+        return switch (campo) {
+            case TITULO -> indiceTitulo.candidatos(termoMinusculo);
+            case ARTISTA -> indiceArtista.candidatos(termoMinusculo);
+            default -> null;
+        };
+    }
+
+    private int[] intersectar(List<Consulta> partes) {
+        List<int[]> conjuntos = new ArrayList<>();
+        BitmapCompactado exatas = null;
+        List<BitmapCompactado> excluidas = new ArrayList<>();
+        for (Consulta parte : partes) {
+            if (parte instanceof Consulta.Nao n) {
+                BitmapCompactado b = exato(n.parte());
+                if (b != null) excluidas.add(b);
+                continue;
+            }
+            BitmapCompactado b = exato(parte);
+            if (b != null) {
+                exatas = exatas == null ? b : BitmapCompactado.e(exatas, b);
+                if (exatas.vazio()) return new int[0];
+                continue;
+            }
+            int[] c = candidatos(parte);
+            if (c == null) continue;
+            if (c.length == 0) return c;
+            conjuntos.add(c);
+        }
+        if (exatas != null) {
+            for (BitmapCompactado b : excluidas) exatas = BitmapCompactado.eNao(exatas, b);
+            conjuntos.add(exatas.paraArray());
+            excluidas.clear();
+        }
+        if (conjuntos.isEmpty()) return null;
+        conjuntos.sort(Comparator.comparingInt(c -> c.length));
+        int[] resultado = conjuntos.get(0);
+        for (int i = 1; i < conjuntos.size() && resultado.length > 0; i++) {
+            resultado = intersecao(resultado, conjuntos.get(i));
+        }
+        return excluidas.isEmpty() ? resultado : semAsExcluidas(resultado, excluidas);
+    }
+
+    private static int[] semAsExcluidas(int[] linhas, List<BitmapCompactado> excluidas) {
+        int[] out = new int[linhas.length];
+        int n = 0;
+        proxima:
+        for (int linha : linhas) {
+            for (BitmapCompactado b : excluidas) if (b.contem(linha)) continue proxima;
+            out[n++] = linha;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private int[] unir(List<Consulta> partes) {
+        int[] resultado = new int[0];
+        for (Consulta parte : partes) {
+            int[] c = candidatos(parte);
+            if (c == null) return null;
+            resultado = uniao(resultado, c);
+        }
+        return resultado;
+    }
+
+    /** Interseção de dois arrays ordenados; busca binária no maior quando os tamanhos são desiguais. */
+    static int[] intersecao(int[] menor, int[] maior) {
+        int[] out = new int[menor.length];
+        int n = 0;
+        if ((long) menor.length * 16 < maior.length) {
+            int de = 0;
+            for (int v : menor) {
+                int pos = Arrays.binarySearch(maior, de, maior.length, v);
+                if (pos >= 0) {
+                    out[n++] = v;
+                    de = pos + 1;
+                } else {
+                    de = -pos - 1;
+                }
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < menor.length && j < maior.length) {
+                if (menor[i] < maior[j]) i++;
+                else if (menor[i] > maior[j]) j++;
+                else {
+                    out[n++] = menor[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static int[] uniao(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) out[n++] = a[i++];
+            else if (i == a.length || b[j] < a[i]) out[n++] = b[j++];
+            else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
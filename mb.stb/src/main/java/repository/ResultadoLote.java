@@ -0,0 +1,50 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Relatório de uma operação em lote da {@link BibliotecaMusical}: um item por
+ * entrada, na ordem recebida, indicando se foi aplicada ou o motivo da rejeição.
+ */
+public class ResultadoLote {
+
+    /** Resultado de uma entrada do lote; {@code motivo} é null quando houve sucesso. */
+    public record Item(int indice, UUID id, boolean sucesso, String motivo) {
+    }
+
+    private final List<Item> itens = new ArrayList<>();
+    private int sucessos;
+
+    void sucesso(int indice, UUID id) {
+        itens.add(new Item(indice, id, true, null));
+        sucessos++;
+    }
+
+    void falha(int indice, UUID id, String motivo) {
+        itens.add(new Item(indice, id, false, motivo));
+    }
+
+    public List<Item> getItens() {
+        return Collections.unmodifiableList(itens);
+    }
+
+    public int getSucessos() {
+        return sucessos;
+    }
+
+    public int getFalhas() {
+        return itens.size() - sucessos;
+    }
+
+    public boolean todosComSucesso() {
+        return getFalhas() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Lote: %d aplicados, %d rejeitados", sucessos, getFalhas());
+    }
+}
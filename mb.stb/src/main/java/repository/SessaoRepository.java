@@ -0,0 +1,153 @@
+package repository;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import model.Usuario;
+
+/**
+ * Sessões de login identificadas por tokens opacos, com expiração por inatividade.
+ * <p>
+ * O token são 32 bytes de {@link SecureRandom} em Base64 URL-safe: não carrega
+ * email nem nada derivável do usuário. As sessões ficam num {@link ConcurrentHashMap}
+ * indexado pelo token, então {@link #validar(String)} é um único lookup, sem repetir a
+ * verificação PBKDF2 de {@link UsuarioRepository#autenticar(String, String)}.
+ * </p>
+ * <p>
+ * Cada validação bem-sucedida renova o prazo. Uma sessão vencida é recusada e
+ * removida no próprio acesso; as que ninguém mais consulta são varridas por uma
+ * thread em segundo plano a cada {@code validade}, para o mapa não crescer com
+ * clientes que sumiram sem fazer logout. Seguro para uso concorrente.
+ * </p>
+ */
+public final class SessaoRepository implements AutoCloseable {
+
+    public static final Duration VALIDADE_PADRAO = Duration.ofMinutes(30);
+
+    private static final int BYTES_TOKEN = 32;
+    private static final SecureRandom ALEATORIO = new SecureRandom();
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    /** Varrer mais que isso só gasta CPU; o acesso já recusa as vencidas. */
+    private static final long VARREDURA_MINIMA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, Sessao> sessoes = new ConcurrentHashMap<>();
+    private final long validadeNanos;
+    /** Fonte de tempo em nanos, no mesmo sentido de {@link System#nanoTime()}. */
+    private final LongSupplier relogio;
+    private final ScheduledExecutorService varredor;
+
+    /**
+     * Imutável: renovar troca a sessão no mapa, então uma remoção condicional
+     * ({@code remove(token, sessao)}) falha se a sessão foi renovada depois do teste.
+     */
+    private record Sessao(Usuario usuario, long expiraEm) {
+    }
+
+    public SessaoRepository() {
+        this(VALIDADE_PADRAO);
+    }
+
+    public SessaoRepository(Duration validade) {
+        this(validade, System::nanoTime);
+    }
+
+    /** @param relogio tempo em nanos; os testes passam um relógio controlado */
+    public SessaoRepository(Duration validade, LongSupplier relogio) {
+        if (validade == null || validade.isZero() || validade.isNegative()) {
+            throw new IllegalArgumentException("A validade da sessão deve ser positiva.");
+        }
+        this.validadeNanos = validade.toNanos();
+        this.relogio = relogio;
+        this.varredor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SessaoRepository-varredor");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalo = Math.max(validadeNanos, VARREDURA_MINIMA_NANOS);
+        varredor.scheduleWithFixedDelay(this::varrer, intervalo, intervalo, TimeUnit.NANOSECONDS);
+    }
+
+    /** Abre uma sessão para um usuário já autenticado e devolve o token. */
+    public String iniciar(Usuario usuario) {
+        if (usuario == null) throw new IllegalArgumentException("Usuário obrigatório para abrir sessão.");
+        Sessao sessao = new Sessao(usuario, relogio.getAsLong() + validadeNanos);
+        while (true) {
+            byte[] bytes = new byte[BYTES_TOKEN];
+            ALEATORIO.nextBytes(bytes);
+            String token = BASE64.encodeToString(bytes);
+            // Colisão em 256 bits não acontece na prática, mas não custa garantir
+            if (sessoes.putIfAbsent(token, sessao) == null) return token;
+        }
+    }
+
+    /**
+     * Usuário dono do token, renovando o prazo da sessão; vazio se o token não existe,
+     * foi encerrado ou venceu.
+     */
+    public Optional<Usuario> validar(String token) {
+        if (token == null) return Optional.empty();
+        long agora = relogio.getAsLong();
+        // Verificação e renovação atômicas: a vencida sai do mapa, a válida é trocada pela renovada
+        Sessao sessao = sessoes.computeIfPresent(token,
+                (t, s) -> venceu(s, agora) ? null : new Sessao(s.usuario(), agora + validadeNanos));
+        return sessao == null ? Optional.empty() : Optional.of(sessao.usuario());
+    }
+
+    /** Logout: o token deixa de valer na hora. */
+    public boolean encerrar(String token) {
+        return token != null && sessoes.remove(token) != null;
+    }
+
+    /** Encerra todas as sessões do email (ex.: logout em todos os clientes). */
+    public int encerrarTodas(String email) {
+        if (email == null) return 0;
+        String chave = Usuario.normalizarEmail(email);
+        return removerSe(s -> s.usuario().getEmail().equals(chave));
+    }
+
+    /** Sessões ainda válidas. */
+    public int quantidade() {
+        long agora = relogio.getAsLong();
+        return (int) sessoes.values().stream().filter(s -> !venceu(s, agora)).count();
+    }
+
+    /**
+     * Remove as sessões vencidas; roda sozinho em segundo plano.
+     *
+     * @return quantas foram removidas
+     */
+    public int varrer() {
+        long agora = relogio.getAsLong();
+        return removerSe(s -> venceu(s, agora));
+    }
+
+    private int removerSe(Predicate<Sessao> condicao) {
+        int removidas = 0;
+        for (Map.Entry<String, Sessao> e : sessoes.entrySet()) {
+            // Só remove a sessão testada: se validar() a renovou no meio, ela fica
+            if (condicao.test(e.getValue()) && sessoes.remove(e.getKey(), e.getValue())) removidas++;
+        }
+        return removidas;
+    }
+
+    private static boolean venceu(Sessao sessao, long agora) {
+        // Diferença em vez de comparação direta: nanoTime pode dar a volta
+        return agora - sessao.expiraEm() >= 0;
+    }
+
+    /** Para a varredura e encerra todas as sessões. */
+    @Override
+    public void close() {
+        varredor.shutdownNow();
+        sessoes.clear();
+    }
+}
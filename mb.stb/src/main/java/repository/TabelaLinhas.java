@@ -0,0 +1,100 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import model.Musica;
+
+/**
+ * Armazena as músicas em linhas numeradas densamente, em ordem de inserção.
+ * <p>
+ * As linhas só crescem: uma remoção deixa uma lápide (null) e a linha não é
+ * reutilizada, então ordenar números de linha equivale a ordenar por inserção.
+ * Quando as lápides dominam, {@link #compactar()} renumera tudo e os índices
+ * que guardam números de linha precisam ser reconstruídos.
+ * </p>
+ */
+final class TabelaLinhas {
+
+    private static final int MIN_LAPIDES_PARA_COMPACTAR = 1024;
+
+    private Musica[] musicas = new Musica[16];
+    private int limite;
+    private int vivas;
+    private final Map<UUID, Integer> linhaPorId = new HashMap<>();
+
+    /** Adiciona ao fim e devolve a linha atribuída. */
+    int adicionar(Musica m) {
+        if (limite == musicas.length) musicas = Arrays.copyOf(musicas, musicas.length * 2);
+        int linha = limite++;
+        musicas[linha] = m;
+        linhaPorId.put(m.getId(), linha);
+        vivas++;
+        return linha;
+    }
+
+    /** Troca a música de uma linha existente (mesmo ID). */
+    void substituir(int linha, Musica m) {
+        musicas[linha] = m;
+    }
+
+    /** Remove pelo ID e devolve a linha liberada, ou -1 se não existir. */
+    int remover(UUID id) {
+        Integer linha = linhaPorId.remove(id);
+        if (linha == null) return -1;
+        musicas[linha] = null;
+        vivas--;
+        return linha;
+    }
+
+    int linhaDe(UUID id) {
+        Integer linha = linhaPorId.get(id);
+        return linha == null ? -1 : linha;
+    }
+
+    /** Música da linha, ou null se a linha for uma lápide. */
+    Musica musica(int linha) {
+        return musicas[linha];
+    }
+
+    /** Uma linha além da última já usada (inclui lápides). */
+    int limite() {
+        return limite;
+    }
+
+    int vivas() {
+        return vivas;
+    }
+
+    boolean precisaCompactar() {
+        int lapides = limite - vivas;
+        return lapides >= MIN_LAPIDES_PARA_COMPACTAR && lapides > vivas;
+    }
+
+    /** Remove as lápides, renumerando as linhas sem alterar a ordem. */
+    void compactar() {
+        Musica[] novas = new Musica[Math.max(16, vivas * 2)];
+        int n = 0;
+        for (int i = 0; i < limite; i++) {
+            Musica m = musicas[i];
+            if (m == null) continue;
+            novas[n] = m;
+            linhaPorId.put(m.getId(), n);
+            n++;
+        }
+        musicas = novas;
+        limite = n;
+    }
+
+    List<Musica> listar() {
+        List<Musica> lista = new ArrayList<>(vivas);
+        for (int i = 0; i < limite; i++) {
+            if (musicas[i] != null) lista.add(musicas[i]);
+        }
+        return lista;
+    }
+}
@@ -1,25 +1,77 @@
 package repository;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import model.Usuario;
+import persistence.UsuarioStorage;
 
-public class UsuarioRepository {
-    private final List<Usuario> usuarios = new ArrayList<>();
+/**
+ * Usuários indexados pelo email, em memória ou num {@link UsuarioStorage}.
+ * <p>
+ * O email já chega normalizado em minúsculas ({@link Usuario#getEmail()}), então o
+ * índice é um {@link ConcurrentHashMap} com essa chave: cadastro é um
+ * {@code putIfAbsent} atômico e login ou verificação de email são um único lookup,
+ * sem percorrer a lista. A ordem de cadastro fica numa fila à parte, só para
+ * {@link #listarTodos()}. Seguro para uso concorrente.
+ * </p>
+ * <p>
+ * Com um storage, o arquivo é a fonte da verdade e o mapa vira um cache: cada usuário
+ * só é lido do disco no primeiro login ou consulta do seu email, e cada cadastro é
+ * anexado ao journal do storage antes de entrar no mapa.
+ * </p>
+ * <p>
+ * Verificar a senha custa uma derivação PBKDF2 ({@link model.SenhaHash}), e gerar o
+ * hash de um cadastro custa o mesmo. {@link #autenticarAsync(String, String)} e
+ * {@link #cadastrarAsync(String, String, String)} fazem isso num pool limitado a um
+ * thread por núcleo, com fila limitada: sob rajadas a fila cheia recusa o pedido (o
+ * future falha com {@link RejectedExecutionException}) em vez de acumular trabalho.
+ * </p>
+ */
+public class UsuarioRepository implements AutoCloseable {
+    private final Map<String, Usuario> porEmail = new ConcurrentHashMap<>();
+    private final Queue<Usuario> usuarios = new ConcurrentLinkedQueue<>();
+    /** null mantém os usuários só em memória. */
+    private final UsuarioStorage storage;
+
+    /** Pedidos de login aguardando um thread de verificação. */
+    private static final int FILA_VERIFICACAO = 256;
+    private final ThreadPoolExecutor verificadores;
 
     /**
      * Construtor que garante a inicialização com um usuário padrão de teste.
      * Necessário para testes automatizados (E2E) que dependem de credenciais válidas.
      */
     public UsuarioRepository() {
+        this(null);
+    }
+
+    /** @param storage arquivo de usuários; null para manter tudo em memória */
+    public UsuarioRepository(UsuarioStorage storage) {
+        this.storage = storage;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        this.verificadores = new ThreadPoolExecutor(nucleos, nucleos, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(FILA_VERIFICACAO), r -> {
+                    Thread t = new Thread(r, "UsuarioRepository-verificador");
+                    t.setDaemon(true);
+                    return t;
+                });
+        verificadores.allowCoreThreadTimeOut(true);
         // Adiciona um usuário padrão para o ambiente de teste/desenvolvimento
         if (!existePorEmail("test@test.com")) {
             try {
                 // Credenciais usadas no MusicaE2ETest
                 Usuario usuarioTeste = new Usuario("Teste E2E", "test@test.com", "pass123");
-                this.usuarios.add(usuarioTeste);
+                cadastrar(usuarioTeste);
                 System.out.println("[UsuarioRepository] Usuário de teste 'test@test.com' adicionado para E2E.");
             } catch (IllegalArgumentException e) {
                 // Devemos garantir que o Usuario seja criado com dados válidos (Nome, Email, Senha >= 4)
@@ -30,28 +82,93 @@ public class UsuarioRepository {
 
     public boolean cadastrar(Usuario u) {
         if (u == null) return false;
-        if (existePorEmail(u.getEmail())) return false;
+        if (storage != null) {
+            // O storage serializa os cadastros e decide qual de dois simultâneos vence
+            if (porEmail.containsKey(u.getEmail()) || !storage.inserirSeAusente(u)) return false;
+            porEmail.put(u.getEmail(), u);
+            return true;
+        }
+        // Dois cadastros simultâneos com o mesmo email: só um vence o putIfAbsent
+        if (porEmail.putIfAbsent(u.getEmail(), u) != null) return false;
         return usuarios.add(u);
     }
 
     public Optional<Usuario> autenticar(String email, String senha) {
-        return usuarios.stream()
-                .filter(u -> u.autenticar(email, senha))
-                .findFirst();
+        Usuario u = buscarPorEmail(email);
+        return u != null && u.autenticar(email, senha) ? Optional.of(u) : Optional.empty();
+    }
+
+    /**
+     * Mesmo que {@link #autenticar(String, String)}, fora do thread chamador; o
+     * future completa no thread de verificação (use {@code SwingUtilities.invokeLater}
+     * para voltar à EDT).
+     */
+    public CompletableFuture<Optional<Usuario>> autenticarAsync(String email, String senha) {
+        try {
+            return CompletableFuture.supplyAsync(() -> autenticar(email, senha), verificadores);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Cria o usuário (gerando o hash da senha) e o cadastra no pool de verificação.
+     * Dados inválidos fazem o future falhar com a {@link exception.RegraNegocioException}
+     * de {@link Usuario}; false, como em {@link #cadastrar(Usuario)}, se o email já existe.
+     */
+    public CompletableFuture<Boolean> cadastrarAsync(String nome, String email, String senha) {
+        try {
+            return CompletableFuture.supplyAsync(() -> cadastrar(new Usuario(nome, email, senha)), verificadores);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     public boolean existePorEmail(String email) {
-        return usuarios.stream().anyMatch(u -> u.getEmail().equalsIgnoreCase(email));
+        return buscarPorEmail(email) != null;
+    }
+
+    private Usuario buscarPorEmail(String email) {
+        if (email == null) return null;
+        String chave = Usuario.normalizarEmail(email);
+        Usuario u = porEmail.get(chave);
+        if (u != null || storage == null) return u;
+        Usuario lido = storage.buscar(chave).orElse(null);
+        if (lido == null) return null;
+        Usuario anterior = porEmail.putIfAbsent(chave, lido);
+        return anterior != null ? anterior : lido;
     }
 
     public List<Usuario> listarTodos() {
-        return List.copyOf(usuarios);
+        if (storage == null) return List.copyOf(usuarios);
+        // Reaproveita as instâncias já em cache para que todos vejam o mesmo objeto
+        return storage.listarTodos().stream()
+                .map(u -> porEmail.computeIfAbsent(u.getEmail(), k -> u))
+                .toList();
     }
 
     /**
      * Limpa a lista de usuários. Deve ser usado com cautela, principalmente para testes.
+     * Com storage, apaga também os arquivos.
      */
     public void limpar() {
+        this.porEmail.clear();
         this.usuarios.clear();
+        if (storage != null) storage.limpar();
+    }
+
+    /**
+     * Encerra o pool de verificação (os logins em andamento terminam) e fecha o
+     * storage, se houver, deixando o índice marcado como consistente.
+     */
+    @Override
+    public void close() {
+        verificadores.shutdown();
+        try {
+            verificadores.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (storage != null) storage.close();
     }
 }
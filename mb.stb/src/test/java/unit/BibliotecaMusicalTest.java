@@ -1,7 +1,22 @@
 package unit;
 
+import java.time.Duration;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse; // Importação limpa
@@ -11,16 +26,27 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
 
+import exception.RegraNegocioException;
 import model.Musica;
 import persistence.FileStorage;
+import persistence.Mutacao;
 import repository.BibliotecaMusical;
+import repository.Consulta;
+import repository.EdicaoMusica;
+import repository.EstatisticasCache;
+import repository.ResultadoLote;
 
 class BibliotecaMusicalTest {
 
@@ -49,6 +75,26 @@ class BibliotecaMusicalTest {
         musicaB = new Musica(UUID.randomUUID(), "Hey Jude", "The Beatles", "Hey Jude", "Rock", 210);
     }
 
+    /**
+     * Catálogo sintético para comparar as buscas indexadas com um filtro direto: quatro
+     * gêneros em rodízio ("Rock" contido em "Hard Rock"), um raro ("Blues") a cada mil,
+     * 23 artistas, 5 álbuns, " Live" em um a cada nove títulos e durações de 60 a 659 s.
+     */
+    private static List<Musica> catalogoGerado(int quantidade) {
+        String[] generos = {"Rock", "Pop", "Jazz", "Hard Rock"};
+        List<Musica> musicas = new ArrayList<>(quantidade);
+        for (int i = 0; i < quantidade; i++) {
+            String genero = i % 1000 == 999 ? "Blues" : generos[i % generos.length];
+            musicas.add(new Musica("Faixa " + i + (i % 9 == 0 ? " Live" : ""), "Artista " + (i % 23),
+                    "Álbum " + (i % 5), genero, 60 + (i * 7) % 600));
+        }
+        return musicas;
+    }
+
+    private static List<UUID> ids(List<Musica> musicas) {
+        return musicas.stream().map(Musica::getId).collect(Collectors.toList());
+    }
+
     @Test
     void deveAdicionarMusicaComSucesso() {
         boolean resultado = biblioteca.adicionarMusica(musicaA);
@@ -94,6 +140,22 @@ class BibliotecaMusicalTest {
         verify(storageMock, times(2)).salvar(anyList()); 
     }
 
+    @Test
+    void edicaoNaoDeveAlterarListasJaEntregues() {
+        biblioteca.adicionarMusica(musicaA);
+        List<Musica> antes = biblioteca.listarTodas();
+
+        biblioteca.editarMusica(musicaA.getId(), "Jealous Guy", null, null, "Pop", null);
+        assertEquals("Imagine", antes.get(0).getTitulo(), "O snapshot anterior à edição não muda.");
+        assertEquals("Jealous Guy", biblioteca.listarTodas().get(0).getTitulo());
+
+        assertThrows(RegraNegocioException.class,
+                () -> biblioteca.editarMusica(musicaA.getId(), "Outro Título", null, null, null, -5));
+        Musica atual = biblioteca.buscarPorId(musicaA.getId()).get();
+        assertEquals("Jealous Guy", atual.getTitulo(), "Edição rejeitada não aplica nenhum campo.");
+        assertEquals(1, biblioteca.buscarPorTitulo("jealous").size());
+    }
+
     @Test
     void naoDeveEditarMusicaInexistente() {
         boolean ok = biblioteca.editarMusica(UUID.randomUUID(), "Nova", null, null, null, null);
@@ -165,4 +227,525 @@ class BibliotecaMusicalTest {
         assertTrue(biblioteca.existeDuplicada(musicaA));
         assertFalse(biblioteca.existeDuplicada(musicaB));
     }
+
+    @Test
+    void deveRegistrarMutacoesNoJournalQuandoStorageForIncremental() {
+        when(storageMock.isIncremental()).thenReturn(true);
+
+        biblioteca.adicionarMusica(musicaA);
+        biblioteca.editarMusica(musicaA.getId(), "Imagine (Remastered)", null, null, null, null);
+        biblioteca.removerPorId(musicaA.getId());
+
+        // Cada operação grava apenas a própria mutação, sem reescrever o catálogo
+        verify(storageMock, times(3)).registrar(anyList());
+        verify(storageMock, never()).salvar(any());
+    }
+
+    @Test
+    void deveManterOrdemDeInsercaoAposRemocao() {
+        Musica musicaC = new Musica(UUID.randomUUID(), "Yesterday", "The Beatles", "Help!", "Pop", 125);
+        biblioteca.adicionarMusica(musicaA);
+        biblioteca.adicionarMusica(musicaB);
+        biblioteca.adicionarMusica(musicaC);
+
+        biblioteca.removerPorId(musicaB.getId());
+
+        var lista = biblioteca.listarTodas();
+        assertEquals(2, lista.size());
+        assertEquals(musicaA.getId(), lista.get(0).getId(), "A ordem de inserção deve ser preservada.");
+        assertEquals(musicaC.getId(), lista.get(1).getId(), "A ordem de inserção deve ser preservada.");
+        assertTrue(biblioteca.buscarPorId(musicaB.getId()).isEmpty(), "A música removida não deve ser encontrada por ID.");
+    }
+
+    @Test
+    void naoDeveAdicionarMusicaComIdJaExistente() {
+        biblioteca.adicionarMusica(musicaA);
+        Musica mesmoId = new Musica(musicaA.getId(), "Outra", "Outro Artista", "Outro Álbum", "Jazz", 100);
+
+        assertFalse(biblioteca.adicionarMusica(mesmoId), "Não deve aceitar duas músicas com o mesmo ID.");
+        assertEquals(1, biblioteca.tamanho());
+    }
+
+    @Test
+    void deveDetectarDuplicadaAposEdicaoDeCampos() {
+        biblioteca.adicionarMusica(musicaA);
+        biblioteca.editarMusica(musicaA.getId(), "Jealous Guy", null, null, null, null);
+
+        Musica comTituloAntigo = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 180);
+        Musica comTituloNovo = new Musica("JEALOUS GUY", "john lennon", "imagine", "Rock", 180);
+
+        assertFalse(biblioteca.existeDuplicada(comTituloAntigo), "A chave antiga deve sair do índice após a edição.");
+        assertTrue(biblioteca.existeDuplicada(comTituloNovo), "A chave nova deve ser encontrada ignorando maiúsculas.");
+    }
+
+    @Test
+    void buscaIndexadaDeveCoincidirComVarreduraCompleta() {
+        String[] artistas = {"Queen", "The Beatles", "Beyoncé", "Nirvana", "Queens of the Stone Age"};
+        String[] generos = {"Rock", "Pop", "Hard Rock", "Grunge", "R&B"};
+        List<Musica> adicionadas = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Musica m = new Musica(UUID.randomUUID(), "Faixa " + i + (i % 7 == 0 ? " Love" : ""),
+                    artistas[i % artistas.length], "Álbum " + (i % 13), generos[i % generos.length], 100 + i);
+            biblioteca.adicionarMusica(m);
+            adicionadas.add(m);
+        }
+        // Remove a maioria para forçar a renumeração das linhas e edita algumas
+        for (int i = 0; i < 2500; i++) biblioteca.removerPorId(adicionadas.get(i).getId());
+        biblioteca.editarMusica(adicionadas.get(2600).getId(), "Somebody to LOVE", null, null, "Rock Clássico", null);
+
+        for (String termo : new String[]{"love", "LOV", "lo", "", "faixa 27", "queen", "rock", "é", "xyz"}) {
+            String t = termo.toLowerCase();
+            assertEquals(filtrar(m -> m.getTitulo().toLowerCase().contains(t)), biblioteca.buscarPorTitulo(termo), "título: " + termo);
+            assertEquals(filtrar(m -> m.getArtista().toLowerCase().contains(t)), biblioteca.buscarPorArtista(termo), "artista: " + termo);
+            assertEquals(filtrar(m -> m.getGenero().toLowerCase().contains(t)), biblioteca.buscarPorGenero(termo), "gênero: " + termo);
+        }
+    }
+
+    private List<Musica> filtrar(Predicate<Musica> filtro) {
+        return biblioteca.listarTodas().stream().filter(filtro).collect(Collectors.toList());
+    }
+
+    @Test
+    void deveSugerirTermosPorPrefixo() {
+        biblioteca.adicionarMusica(musicaA);
+        biblioteca.adicionarMusica(musicaB);
+        biblioteca.adicionarMusica(new Musica(UUID.randomUUID(), "Hey You", "Pink Floyd", "The Wall", "Rock", 280));
+
+        assertEquals(List.of("Hey Jude", "Hey You"), biblioteca.sugerir("hey", 10));
+        assertEquals(List.of("Hey Jude"), biblioteca.sugerir("HEY", 1), "Deve respeitar o limite de sugestões.");
+        assertEquals(List.of("Rock"), biblioteca.sugerir("ro", 10), "Termos repetidos aparecem uma única vez.");
+
+        biblioteca.removerPorId(musicaB.getId());
+        assertEquals(List.of("Hey You"), biblioteca.sugerir("hey", 10), "Termos removidos não devem ser sugeridos.");
+        assertTrue(biblioteca.sugerir("", 10).isEmpty());
+    }
+
+    @Test
+    void leiturasConcorrentesNaoDevemFalharDuranteEscritas() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        List<Future<?>> leitores = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            leitores.add(pool.submit(() -> {
+                while (escrevendo.get()) {
+                    int total = 0;
+                    for (Musica m : biblioteca.listarTodas()) total += m.getDuracaoSegundos();
+                    biblioteca.buscarPorTitulo("faixa 1");
+                    assertTrue(total >= 0);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < 2000; i++) {
+                Musica m = new Musica(UUID.randomUUID(), "Faixa " + i, "Artista", "Álbum", "Rock", 100);
+                biblioteca.adicionarMusica(m);
+                if (i % 2 == 0) biblioteca.removerPorId(m.getId());
+            }
+        } finally {
+            escrevendo.set(false);
+        }
+        for (Future<?> f : leitores) f.get(10, TimeUnit.SECONDS); // propaga exceções dos leitores
+        pool.shutdown();
+
+        assertEquals(1000, biblioteca.tamanho());
+        assertEquals(1000, biblioteca.listarTodas().size());
+    }
+
+    @Test
+    void adicionarTodasDeveRelatarItensESalvarUmaVez() {
+        biblioteca.adicionarMusica(musicaA);
+        Musica copiaDeB = new Musica(UUID.randomUUID(), "HEY JUDE", "the beatles", "hey jude", "Rock", 200);
+
+        ResultadoLote resultado = biblioteca.adicionarTodas(Arrays.asList(musicaB, null, musicaA, copiaDeB));
+
+        assertEquals(1, resultado.getSucessos());
+        assertEquals(3, resultado.getFalhas());
+        assertTrue(resultado.getItens().get(0).sucesso());
+        assertFalse(resultado.getItens().get(3).sucesso(), "Duplicada dentro do próprio lote deve ser rejeitada.");
+        assertEquals(2, biblioteca.tamanho());
+        // Uma gravação para a adição individual + uma para o lote inteiro
+        verify(storageMock, times(2)).salvar(anyList());
+    }
+
+    @Test
+    void editarTodasDeveValidarAntesDeAplicar() {
+        biblioteca.adicionarTodas(List.of(musicaA, musicaB));
+
+        ResultadoLote resultado = biblioteca.editarTodas(List.of(
+                new EdicaoMusica(musicaA.getId(), "Imagine (Remastered)", null, null, null, null),
+                new EdicaoMusica(musicaB.getId(), null, null, null, null, -1),
+                new EdicaoMusica(UUID.randomUUID(), "Fantasma", null, null, null, null)));
+
+        assertEquals(1, resultado.getSucessos());
+        assertEquals("Duração deve ser maior que zero.", resultado.getItens().get(1).motivo());
+        assertEquals("Imagine (Remastered)", biblioteca.buscarPorId(musicaA.getId()).get().getTitulo());
+        assertEquals(210, biblioteca.buscarPorId(musicaB.getId()).get().getDuracaoSegundos(), "Edição inválida não deve ser aplicada.");
+        assertEquals("Imagine", musicaA.getTitulo(), "A instância original não é alterada.");
+        assertEquals(1, biblioteca.buscarPorTitulo("remastered").size(), "Índices devem refletir a edição em lote.");
+    }
+
+    @Test
+    void removerTodosDeveGravarUmUnicoLoteNoJournal() {
+        when(storageMock.isIncremental()).thenReturn(true);
+        biblioteca.adicionarTodas(List.of(musicaA, musicaB));
+
+        ResultadoLote resultado = biblioteca.removerTodos(List.of(musicaA.getId(), musicaB.getId(), musicaA.getId()));
+
+        assertEquals(2, resultado.getSucessos());
+        assertFalse(resultado.todosComSucesso(), "ID repetido no lote deve ser rejeitado.");
+        assertEquals(0, biblioteca.tamanho());
+        verify(storageMock, times(2)).registrar(anyList());
+        verify(storageMock, never()).salvar(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void gravacaoAssincronaDeveFundirRajadaEmUmaGravacao() {
+        when(storageMock.isIncremental()).thenReturn(true);
+        BibliotecaMusical assincrona = new BibliotecaMusical(storageMock, false, Duration.ofHours(1));
+
+        assincrona.adicionarMusica(musicaA);
+        assincrona.adicionarMusica(musicaB);
+        assincrona.editarMusica(musicaA.getId(), "Imagine (Remastered)", null, null, null, null);
+        verify(storageMock, never()).registrar(anyList());
+
+        assincrona.flush();
+
+        ArgumentCaptor<List<Mutacao>> lote = ArgumentCaptor.forClass(List.class);
+        verify(storageMock, times(1)).registrar(lote.capture());
+        assertEquals(2, lote.getValue().size(), "Mutações do mesmo ID devem se fundir.");
+        assertEquals(musicaA.getId(), lote.getValue().get(0).id(), "A ordem da primeira aparição deve ser mantida.");
+        assertEquals("Imagine (Remastered)", lote.getValue().get(0).musica().getTitulo(), "A última mutação vence.");
+        assincrona.close();
+    }
+
+    @Test
+    void gravacaoAssincronaDeveGravarSozinhaAoFimDaJanela() {
+        BibliotecaMusical assincrona = new BibliotecaMusical(storageMock, false, Duration.ofMillis(20));
+
+        assincrona.adicionarMusica(musicaA);
+        assincrona.adicionarMusica(musicaB);
+
+        verify(storageMock, timeout(5000).times(1)).salvar(anyList());
+        assincrona.close();
+        verify(storageMock, times(1)).salvar(anyList());
+    }
+
+    @Test
+    void closeDeveGravarPendentesEPassarParaGravacaoSincrona() {
+        BibliotecaMusical assincrona = new BibliotecaMusical(storageMock, false, Duration.ofHours(1));
+        assincrona.adicionarMusica(musicaA);
+
+        assincrona.close();
+        verify(storageMock, times(1)).salvar(anyList());
+
+        assincrona.adicionarMusica(musicaB);
+        verify(storageMock, times(2)).salvar(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void closeDuranteGravacaoDeSnapshotNaoDeveTravar() throws Exception {
+        CountDownLatch gravando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // Segura a thread de gravação no meio do flush
+        when(storageMock.isIncremental()).thenAnswer(inv -> {
+            if (Thread.currentThread().getName().equals("BibliotecaMusical-gravador")) {
+                gravando.countDown();
+                liberar.await(5, TimeUnit.SECONDS);
+            }
+            return false;
+        });
+        BibliotecaMusical assincrona = new BibliotecaMusical(storageMock, false, Duration.ofMillis(1));
+        assincrona.adicionarMusica(musicaA);
+        assertTrue(gravando.await(5, TimeUnit.SECONDS));
+        // Invalida o snapshot: a gravação vai precisar do lock de leitura para refazê-lo
+        assincrona.adicionarMusica(musicaB);
+
+        Thread fechamento = new Thread(assincrona::close);
+        fechamento.setDaemon(true);
+        fechamento.start();
+        while (fechamento.getState() == Thread.State.NEW || fechamento.getState() == Thread.State.RUNNABLE) {
+            Thread.sleep(1);
+        }
+        liberar.countDown();
+        fechamento.join(5000);
+
+        assertFalse(fechamento.isAlive(), "close() não pode travar com uma gravação em andamento.");
+        ArgumentCaptor<List<Musica>> salvas = ArgumentCaptor.forClass(List.class);
+        verify(storageMock, atLeastOnce()).salvar(salvas.capture());
+        assertEquals(List.of(musicaA, musicaB), salvas.getValue(), "O último snapshot gravado deve ter as duas músicas.");
+    }
+
+    @Test
+    void flushExplicitoDeveEsperarAGravacaoEmAndamento() throws Exception {
+        // Janela longa: as gravações deste teste só acontecem pelos flush() explícitos
+        BibliotecaMusical assincrona = new BibliotecaMusical(storageMock, false, Duration.ofMinutes(1));
+        assincrona.adicionarMusica(musicaA);
+
+        // Um lote segura o lock de escrita enquanto é percorrido
+        CountDownLatch emLote = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Collection<Musica> lote = new AbstractCollection<>() {
+            @Override
+            public Iterator<Musica> iterator() {
+                emLote.countDown();
+                try {
+                    liberar.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return List.of(musicaB).iterator();
+            }
+
+            @Override
+            public int size() {
+                return 1;
+            }
+        };
+        Thread escrita = new Thread(() -> assincrona.adicionarTodas(lote));
+        escrita.setDaemon(true);
+        escrita.start();
+        assertTrue(emLote.await(5, TimeUnit.SECONDS));
+
+        // A primeira gravação drena a fila e fica esperando o lock de leitura para o snapshot
+        Thread primeira = new Thread(assincrona::flush);
+        primeira.setDaemon(true);
+        primeira.start();
+        while (primeira.getState() != Thread.State.WAITING) Thread.sleep(1);
+
+        Thread segunda = new Thread(assincrona::flush);
+        segunda.setDaemon(true);
+        segunda.start();
+        segunda.join(200);
+        assertTrue(segunda.isAlive(), "flush() não pode retornar antes de a gravação em andamento chegar ao disco.");
+
+        liberar.countDown();
+        segunda.join(5000);
+        assertFalse(segunda.isAlive());
+        verify(storageMock).salvar(argThat(salvas -> salvas.contains(musicaA)));
+        primeira.join(5000);
+        escrita.join(5000);
+        assincrona.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void escritasConcorrentesDevemCompartilharUmaGravacao() throws Exception {
+        CountDownLatch gravando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // A primeira gravação fica presa enquanto as outras escritas chegam
+        doAnswer(inv -> {
+            gravando.countDown();
+            liberar.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(storageMock).salvar(anyList());
+
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        List<Future<Boolean>> escritas = new ArrayList<>();
+        escritas.add(pool.submit(() -> biblioteca.adicionarMusica(musicaA)));
+        assertTrue(gravando.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            Musica m = new Musica("Faixa " + i, "Artista", "Álbum", "Rock", 100 + i);
+            escritas.add(pool.submit(() -> biblioteca.adicionarMusica(m)));
+        }
+        // As escritas não esperam o disco: todas entram na biblioteca com a gravação presa
+        while (biblioteca.tamanho() < 6) Thread.sleep(1);
+        liberar.countDown();
+        for (Future<Boolean> f : escritas) assertTrue(f.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        ArgumentCaptor<List<Musica>> salvas = ArgumentCaptor.forClass(List.class);
+        verify(storageMock, times(2)).salvar(salvas.capture());
+        assertEquals(6, salvas.getValue().size(), "A segunda gravação cobre as cinco escritas que esperavam.");
+    }
+
+    @Test
+    void catalogoColunarDeveDarOsMesmosResultadosQueOsIndices() {
+        BibliotecaMusical colunar = new BibliotecaMusical(storageMock, false, null, true);
+        List<Musica> musicas = catalogoGerado(300);
+        biblioteca.adicionarTodas(musicas);
+        colunar.adicionarTodas(musicas);
+        for (int i = 0; i < 300; i += 7) {
+            biblioteca.removerPorId(musicas.get(i).getId());
+            colunar.removerPorId(musicas.get(i).getId());
+        }
+        biblioteca.editarMusica(musicas.get(1).getId(), null, "Novo Artista", null, "Jazz", null);
+        colunar.editarMusica(musicas.get(1).getId(), null, "Novo Artista", null, "Jazz", null);
+
+        for (String termo : List.of("artista 1", "NOVO", "", "inexistente")) {
+            assertEquals(biblioteca.buscarPorArtista(termo), colunar.buscarPorArtista(termo), "Artista: " + termo);
+        }
+        for (String termo : List.of("rock", "pop", "jazz", "o")) {
+            assertEquals(biblioteca.buscarPorGenero(termo), colunar.buscarPorGenero(termo), "Gênero: " + termo);
+        }
+        assertEquals(biblioteca.duracaoTotal(), colunar.duracaoTotal());
+    }
+
+    @Test
+    void buscarPorDuracaoDeveRespeitarAFaixaEOrdenarPorDuracao() {
+        Musica curta = new Musica(UUID.randomUUID(), "Her Majesty", "The Beatles", "Abbey Road", "Rock", 23);
+        Musica longa = new Musica(UUID.randomUUID(), "Echoes", "Pink Floyd", "Meddle", "Rock", 1412);
+        biblioteca.adicionarTodas(List.of(musicaB, curta, musicaA, longa)); // 210 e 183 segundos
+
+        assertEquals(List.of(musicaA, musicaB), biblioteca.buscarPorDuracao(180, 300));
+        assertEquals(List.of(longa), biblioteca.buscarPorDuracao(601, Integer.MAX_VALUE));
+        assertEquals(List.of(curta, musicaA), biblioteca.buscarPorDuracao(0, 183), "Limites são inclusivos.");
+        assertTrue(biblioteca.buscarPorDuracao(300, 180).isEmpty());
+    }
+
+    @Test
+    void indiceDeDuracaoDeveAcompanharEdicoesERemocoes() {
+        biblioteca.adicionarMusica(musicaA);
+        biblioteca.adicionarMusica(musicaB);
+
+        biblioteca.editarMusica(musicaA.getId(), null, null, null, null, 700);
+        assertEquals(List.of(musicaB), biblioteca.buscarPorDuracao(100, 300));
+        assertEquals(List.of(musicaA), biblioteca.buscarPorDuracao(600, Integer.MAX_VALUE));
+
+        biblioteca.removerPorId(musicaB.getId());
+        assertTrue(biblioteca.buscarPorDuracao(100, 300).isEmpty());
+    }
+
+    @Test
+    void consultasCompostasDevemCoincidirComFiltroDireto() {
+        BibliotecaMusical colunar = new BibliotecaMusical(storageMock, false, null, true);
+        List<Musica> musicas = catalogoGerado(400);
+        biblioteca.adicionarTodas(musicas);
+        colunar.adicionarTodas(musicas);
+
+        List<Consulta> consultas = List.of(
+                Consulta.e(Consulta.contem(Consulta.Campo.GENERO, "rock"), Consulta.duracaoEntre(200, 400)),
+                Consulta.e(Consulta.igual(Consulta.Campo.ARTISTA, "artista 3"), Consulta.contem(Consulta.Campo.TITULO, "live")),
+                Consulta.ou(Consulta.igual(Consulta.Campo.GENERO, "JAZZ"), Consulta.duracaoEntre(600, Integer.MAX_VALUE)),
+                Consulta.e(Consulta.contem(Consulta.Campo.ALBUM, "3"), Consulta.ou(
+                        Consulta.contem(Consulta.Campo.TITULO, "1"), Consulta.contem(Consulta.Campo.ARTISTA, "ta 2"))),
+                Consulta.contem(Consulta.Campo.TITULO, "inexistente"));
+
+        for (Consulta c : consultas) {
+            List<UUID> esperado = ids(musicas.stream().filter(c::aceita).toList());
+            assertEquals(esperado, ids(biblioteca.buscar(c)), c.toString());
+            assertEquals(esperado, ids(colunar.buscar(c)), "Colunar: " + c);
+        }
+    }
+
+    @Test
+    void contagensPorFacetaDevemAcompanharInclusoesEdicoesERemocoes() {
+        Musica outraRock = new Musica(UUID.randomUUID(), "Hey You", "Pink Floyd", "The Wall", "Rock", 280);
+        biblioteca.adicionarTodas(List.of(musicaA, musicaB, outraRock));
+        Map<String, Integer> antes = biblioteca.contarPor(Consulta.Campo.GENERO);
+        assertEquals(biblioteca.contarPor(Consulta.Campo.GENERO, biblioteca.listarTodas()), antes,
+                "Contagem mantida deve coincidir com a contagem direta.");
+
+        String generoA = musicaA.getGenero();
+        biblioteca.editarMusica(musicaA.getId(), null, null, null, "Jazz", null);
+        Map<String, Integer> depois = biblioteca.contarPor(Consulta.Campo.GENERO);
+        assertEquals(1, depois.get("Jazz"));
+        assertEquals(antes.get(generoA) - 1, depois.getOrDefault(generoA, 0), "Edição move a música de gênero.");
+
+        biblioteca.removerPorId(outraRock.getId());
+        assertFalse(biblioteca.contarPor(Consulta.Campo.ARTISTA).containsKey("Pink Floyd"),
+                "Valor sem músicas deve sair das contagens.");
+        assertEquals(biblioteca.contarPor(Consulta.Campo.ALBUM, biblioteca.listarTodas()),
+                biblioteca.contarPor(Consulta.Campo.ALBUM));
+    }
+
+    @Test
+    void contagensDevemVirOrdenadasDaMaiorParaAMenor() {
+        List<Musica> musicas = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            musicas.add(new Musica("Faixa " + i, "Artista", "Álbum", i < 3 ? "Rock" : i < 5 ? "Pop" : "Jazz", 100 + i));
+        }
+        biblioteca.adicionarTodas(musicas);
+
+        assertEquals(List.of("Rock", "Pop", "Jazz"), new ArrayList<>(biblioteca.contarPor(Consulta.Campo.GENERO).keySet()));
+        assertEquals(Map.of("Pop", 2, "Jazz", 1),
+                biblioteca.contarPor(Consulta.Campo.GENERO, biblioteca.buscar(Consulta.duracaoEntre(103, 200))),
+                "Contagem sobre um resultado de busca considera só as músicas do resultado.");
+        assertThrows(IllegalArgumentException.class, () -> biblioteca.contarPor(Consulta.Campo.TITULO));
+    }
+
+    @Test
+    void buscaPorGeneroDeveCoincidirComFiltroEmCatalogoGrande() {
+        // 4500 linhas por gênero comum passam do limite de 4096: blocos densos ao lado do esparso de "Blues"
+        List<Musica> musicas = catalogoGerado(18_000);
+        biblioteca.adicionarTodas(musicas);
+
+        for (String termo : List.of("rock", "ROCK", "blues", "a", "funk")) {
+            String t = termo.toLowerCase();
+            List<UUID> esperado = ids(musicas.stream().filter(m -> m.getGenero().toLowerCase().contains(t)).toList());
+            assertEquals(esperado, ids(biblioteca.buscarPorGenero(termo)), "Gênero contendo " + termo);
+        }
+
+        // Remoções em massa fazem os blocos densos voltarem a esparsos
+        biblioteca.removerTodos(musicas.stream().filter(m -> m.getGenero().equals("Rock"))
+                .skip(500).map(Musica::getId).collect(Collectors.toList()));
+        assertEquals(500, biblioteca.buscar(Consulta.igual(Consulta.Campo.GENERO, "rock")).size());
+    }
+
+    @Test
+    void consultasComExclusaoPorGeneroDevemCoincidirComFiltroDireto() {
+        List<Musica> musicas = catalogoGerado(400);
+        biblioteca.adicionarTodas(musicas);
+        biblioteca.editarMusica(musicas.get(1).getId(), null, null, null, "Rock", null);
+
+        List<Consulta> consultas = List.of(
+                Consulta.e(Consulta.contem(Consulta.Campo.GENERO, "rock"), Consulta.nao(Consulta.igual(Consulta.Campo.GENERO, "hard rock"))),
+                Consulta.e(Consulta.duracaoEntre(100, 300), Consulta.nao(Consulta.ou(
+                        Consulta.igual(Consulta.Campo.GENERO, "pop"), Consulta.igual(Consulta.Campo.GENERO, "jazz")))),
+                Consulta.e(Consulta.contem(Consulta.Campo.TITULO, "live"), Consulta.nao(Consulta.contem(Consulta.Campo.ARTISTA, "ta 1"))),
+                Consulta.ou(Consulta.igual(Consulta.Campo.GENERO, "jazz"), Consulta.igual(Consulta.Campo.GENERO, "pop")),
+                Consulta.nao(Consulta.contem(Consulta.Campo.GENERO, "o")));
+
+        for (Consulta c : consultas) {
+            List<UUID> esperado = ids(biblioteca.listarTodas().stream().filter(c::aceita).toList());
+            assertEquals(esperado, ids(biblioteca.buscar(c)), c.toString());
+        }
+    }
+
+    @Test
+    void buscaRepetidaDeveVirDoCache() {
+        biblioteca.adicionarTodas(List.of(musicaA, musicaB));
+
+        List<Musica> primeira = biblioteca.buscarPorArtista("beatles");
+        List<Musica> segunda = biblioteca.buscarPorArtista("BEATLES ");
+        List<Musica> terceira = biblioteca.buscarPorArtista("Beatles");
+
+        assertEquals(List.of(musicaB), primeira);
+        assertTrue(primeira == terceira, "Mesmo campo e termo normalizado devem reaproveitar o resultado.");
+        assertEquals(List.of(), segunda, "Espaço final faz parte do termo.");
+        EstatisticasCache stats = biblioteca.estatisticasCache();
+        assertEquals(1, stats.acertos());
+        assertEquals(2, stats.falhas());
+        assertThrows(UnsupportedOperationException.class, () -> primeira.add(musicaA), "Resultado compartilhado é imutável.");
+    }
+
+    @Test
+    void mutacoesDevemInvalidarSoAsBuscasAfetadas() {
+        biblioteca.adicionarTodas(List.of(musicaA, musicaB));
+        List<Musica> lennon = biblioteca.buscarPorArtista("lennon");
+        List<Musica> beatles = biblioteca.buscarPorArtista("beatles");
+        List<Musica> rock = biblioteca.buscarPorGenero("rock");
+
+        Musica nova = new Musica(UUID.randomUUID(), "Let It Be", "The Beatles", "Let It Be", "Pop", 243);
+        biblioteca.adicionarMusica(nova);
+        assertTrue(lennon == biblioteca.buscarPorArtista("lennon"), "Inclusão de outro artista não invalida.");
+        assertTrue(rock == biblioteca.buscarPorGenero("rock"), "Inclusão de outro gênero não invalida.");
+        assertEquals(List.of(musicaB, nova), biblioteca.buscarPorArtista("beatles"));
+
+        biblioteca.editarMusica(nova.getId(), null, null, null, "Rock", null);
+        assertEquals(List.of(musicaA, musicaB, nova), biblioteca.buscarPorGenero("rock"), "Edição entra no gênero novo.");
+        assertTrue(lennon == biblioteca.buscarPorArtista("lennon"));
+
+        List<Musica> beatlesComNova = biblioteca.buscarPorArtista("beatles");
+        biblioteca.editarMusica(musicaA.getId(), "Imagine (Remastered)", null, null, null, null);
+        assertTrue(beatlesComNova == biblioteca.buscarPorArtista("beatles"), "Edição de outro artista não invalida.");
+        assertEquals("Imagine", lennon.get(0).getTitulo(), "Resultados já entregues não mudam.");
+        assertEquals("Imagine (Remastered)", biblioteca.buscarPorArtista("lennon").get(0).getTitulo());
+
+        biblioteca.removerPorId(musicaA.getId());
+        assertTrue(biblioteca.buscarPorArtista("lennon").isEmpty());
+        assertEquals(List.of(musicaB, nova), biblioteca.buscar(Consulta.contem(Consulta.Campo.GENERO, "rock")));
+        assertFalse(beatles == biblioteca.buscarPorArtista("beatles"));
+    }
 }
@@ -0,0 +1,105 @@
+package unit;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import exception.RegraNegocioException;
+import model.Musica;
+import repository.Consulta;
+import repository.ConsultaParser;
+
+class ConsultaParserTest {
+
+    private final Musica bohemian = new Musica("Bohemian Rhapsody", "Queen", "A Night at the Opera", "Rock", 354);
+    private final Musica radioGaGa = new Musica("Radio Ga Ga", "Queen", "The Works", "Pop Rock", 343);
+    private final Musica imagine = new Musica("Imagine", "John Lennon", "Imagine", "Pop", 183);
+
+    // =========================================================
+    // ✅ Testes de Sintaxe
+    // =========================================================
+
+    @Test
+    void deveCombinarCamposDuracaoETextoLivreComE() {
+        Consulta c = ConsultaParser.interpretar("artista:queen genero:rock duracao>350 \"bohemian\"");
+
+        assertTrue(c.aceita(bohemian));
+        assertFalse(c.aceita(radioGaGa), "Duração 343 não é maior que 350.");
+        assertFalse(c.aceita(imagine));
+    }
+
+    @Test
+    void deveAceitarOrIgualdadeECamposComAcento() {
+        Consulta c = ConsultaParser.interpretar("gênero=pop OR título:radio");
+
+        assertTrue(c.aceita(imagine), "Gênero exatamente 'Pop'.");
+        assertTrue(c.aceita(radioGaGa), "Título contém 'radio'.");
+        assertFalse(c.aceita(bohemian));
+    }
+
+    @Test
+    void deveInterpretarFaixasDeDuracaoEmMinutos() {
+        Consulta faixa = ConsultaParser.interpretar("duracao:3:00-5:00");
+        assertEquals(new Consulta.DuracaoEntre(180, 300), faixa);
+        assertEquals(new Consulta.DuracaoEntre(601, Integer.MAX_VALUE), ConsultaParser.interpretar(">10:00"));
+        assertTrue(ConsultaParser.interpretar("Jay-Z").aceita(
+                new Musica("Empire State of Mind", "Jay-Z", "The Blueprint 3", "Hip Hop", 276)), "Texto com hífen não é faixa.");
+    }
+
+    @Test
+    void deveReaproveitarConsultaCompiladaDoCache() {
+        assertSame(ConsultaParser.interpretar("artista:lennon duracao<200"),
+                ConsultaParser.interpretar("  artista:lennon duracao<200 "));
+        assertNull(ConsultaParser.interpretar("   "), "Consulta vazia casa com tudo.");
+    }
+
+    @Test
+    void deveRejeitarSintaxeInvalida() {
+        assertThrows(RegraNegocioException.class, () -> ConsultaParser.interpretar("\"sem fechar"));
+        assertThrows(RegraNegocioException.class, () -> ConsultaParser.interpretar("duracao>abc"));
+        assertThrows(RegraNegocioException.class, () -> ConsultaParser.interpretar("artista>3"));
+        assertThrows(RegraNegocioException.class, () -> ConsultaParser.interpretar("OR rock"));
+    }
+
+    @Test
+    void deveAceitarBarraComoOr() {
+        List<Musica> todas = List.of(bohemian, radioGaGa, imagine);
+        Consulta c = ConsultaParser.interpretar("queen | lennon");
+        assertEquals(3, todas.stream().filter(c::aceita).count());
+    }
+
+
+    @Test
+    void deveExcluirTermosComHifen() {
+        Consulta c = ConsultaParser.interpretar("artista:queen -genero=rock");
+
+        assertTrue(c.aceita(radioGaGa), "Pop Rock não é igual a Rock.");
+        assertFalse(c.aceita(bohemian));
+        assertFalse(c.aceita(imagine));
+        assertTrue(ConsultaParser.interpretar("-").aceita(new Musica("Ob-La-Di", "The Beatles", "", "Pop", 188)),
+                "Hífen sozinho é texto.");
+    }
+
+    @Test
+    void valorLiteralNaoDeveSerInterpretadoComoSintaxe() {
+        Musica faixaUmDois = new Musica("1-2", "Banda", "Demo", "Indie", 200);
+        Musica coletanea = new Musica("Rock OR Pop", "Vários", "Coletânea", "Pop", 210);
+        Musica campo = new Musica("genero:rock", "Banda", "Demo", "Indie", 190);
+
+        assertTrue(ConsultaParser.interpretar(ConsultaParser.literal("1-2")).aceita(faixaUmDois),
+                "Entre aspas, 1-2 é texto e não uma faixa de duração.");
+        Consulta rockOuPop = ConsultaParser.interpretar(ConsultaParser.literal("Rock OR Pop"));
+        assertTrue(rockOuPop.aceita(coletanea));
+        assertFalse(rockOuPop.aceita(bohemian), "OR dentro do valor não separa alternativas.");
+        Consulta generoRock = ConsultaParser.interpretar(ConsultaParser.literal("genero:rock"));
+        assertTrue(generoRock.aceita(campo));
+        assertFalse(generoRock.aceita(bohemian), "campo:valor dentro do valor não é filtro por campo.");
+        assertEquals("\"Say Hi\"", ConsultaParser.literal("Say \"Hi\""), "Aspas do valor são descartadas.");
+    }
+}
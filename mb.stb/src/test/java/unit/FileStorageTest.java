@@ -1,21 +1,37 @@
 package unit;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import model.Musica;
+import persistence.CatalogoBinario;
+import persistence.ConversorCatalogo;
 import persistence.FileStorage;
+import persistence.Mutacao;
 
 class FileStorageTest {
 
@@ -137,4 +153,351 @@ class FileStorageTest {
         assertDoesNotThrow(() -> invalida.salvar(List.of(m)),
                 "O método salvar deve capturar IOException internamente.");
     }
-}
\ No newline at end of file
+
+    // =========================================================
+    // ✅ Testes do Journal
+    // =========================================================
+
+    @Test
+    void deveReaplicarJournalSobreSnapshotAoCarregar() {
+        FileStorage comJournal = new FileStorage(arquivo, true);
+        Musica m1 = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183);
+        Musica m2 = new Musica("Bohemian Rhapsody", "Queen", "A Night at the Opera", "Rock", 354);
+        comJournal.salvar(List.of(m1));
+
+        Musica m3 = new Musica("Hey Jude", "The Beatles", "Hey Jude", "Rock", 431);
+        comJournal.registrar(List.of(Mutacao.inclusao(m2), Mutacao.inclusao(m3)));
+        comJournal.registrar(List.of(Mutacao.edicao(m1.comTitulo("Imagine (Remastered)")), Mutacao.remocao(m2.getId())));
+
+        List<Musica> carregadas = new FileStorage(arquivo, true).carregar();
+        assertEquals(2, carregadas.size(), "Inclusões e remoções do journal devem ser reaplicadas.");
+        assertEquals("Imagine (Remastered)", carregadas.get(0).getTitulo(), "Edição deve manter a posição original.");
+        assertEquals(m3.getId(), carregadas.get(1).getId());
+    }
+
+    @Test
+    void compactacaoDeveIncorporarJournalAoSnapshot() {
+        FileStorage comJournal = new FileStorage(arquivo, true);
+        Musica m = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183);
+        comJournal.registrar(List.of(Mutacao.inclusao(m)));
+
+        comJournal.compactar();
+
+        assertFalse(Files.exists(tempDir.resolve("musicas.csv.journal")), "O journal deve ser descartado após compactar.");
+        List<Musica> snapshot = new FileStorage(arquivo).carregar();
+        assertEquals(1, snapshot.size(), "O snapshot deve conter a música registrada no journal.");
+        assertEquals(m.getId(), snapshot.get(0).getId());
+    }
+
+    @Test
+    void journalComUltimaLinhaIncompletaNaoDeveEngolirOProximoLote() throws IOException {
+        FileStorage comJournal = new FileStorage(arquivo, true);
+        Musica m1 = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183);
+        comJournal.registrar(List.of(Mutacao.inclusao(m1)));
+        // Queda no meio de um anexo: a linha ficou sem o '\n' final
+        Files.write(tempDir.resolve("musicas.csv.journal"),
+                ("I;" + UUID.randomUUID() + ";Hey J").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FileStorage reaberto = new FileStorage(arquivo, true);
+        assertEquals(1, reaberto.carregar().size(), "A linha parcial é descartada.");
+        Musica m2 = new Musica("Bohemian Rhapsody", "Queen", "A Night at the Opera", "Rock", 354);
+        reaberto.registrar(List.of(Mutacao.inclusao(m2)));
+
+        List<Musica> carregadas = new FileStorage(arquivo, true).carregar();
+        assertEquals(List.of(m1.getId(), m2.getId()), carregadas.stream().map(Musica::getId).toList(),
+                "O lote anexado depois da queda não pode se perder.");
+    }
+
+    // =========================================================
+    // ✅ Testes do Leitor em Streaming
+    // =========================================================
+
+    @Test
+    void deveLerLinhasComQuebraWindowsEEscapesDeBarra() throws IOException {
+        Files.writeString(arquivo,
+                "7f1d7f3f-9b2b-4d4f-8a11-222222222222;Billie Jean;Michael Jackson;Thriller;Pop;294\r\n"
+                + "\r\n"
+                + "8A2E8F4E-1C3C-5E5F-9B12-333333333333;AC\\\\DC\\;Live;Artista\\nDuas Linhas;;Rock;+354;extra\r\n"
+                + "9b3f9f5f-2d4d-6f6a-0c13-444444444444;Sem Duração;Nirvana;Nevermind;Grunge;\r\n");
+
+        List<Musica> lista = storage.carregar();
+
+        assertEquals(2, lista.size(), "Linha com duração vazia deve ser ignorada.");
+        assertEquals("Thriller", lista.get(0).getAlbum(), "O '\\r' final não deve fazer parte do último campo.");
+        Musica m = lista.get(1);
+        assertEquals(UUID.fromString("8a2e8f4e-1c3c-5e5f-9b12-333333333333"), m.getId());
+        assertEquals("AC\\DC;Live", m.getTitulo());
+        assertEquals("Artista\nDuas Linhas", m.getArtista());
+        assertEquals("", m.getAlbum());
+        assertEquals(354, m.getDuracaoSegundos());
+    }
+
+    @Test
+    void deveCarregarCatalogoMaiorQueOBufferDeLeitura() {
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lista.add(new Musica("Faixa " + i + " ;\\ " + "x".repeat(i % 40), "Artista " + (i % 50), "Álbum", "Rock", 100 + i));
+        }
+        storage.salvar(lista);
+
+        List<Musica> carregadas = storage.carregar();
+        assertEquals(lista.size(), carregadas.size());
+        for (int i = 0; i < lista.size(); i++) {
+            assertEquals(lista.get(i).getId(), carregadas.get(i).getId());
+            assertEquals(lista.get(i).getTitulo(), carregadas.get(i).getTitulo());
+            assertEquals(lista.get(i).getDuracaoSegundos(), carregadas.get(i).getDuracaoSegundos());
+        }
+    }
+
+    @Test
+    void cargaParalelaDevePreservarOrdemDoArquivo() {
+        List<Musica> lista = new ArrayList<>();
+        // ~7 MB: acima do limite da carga paralela, com escapes espalhados pelas faixas
+        for (int i = 0; i < 60_000; i++) {
+            lista.add(new Musica("Faixa " + i + " \\;\n" + "x".repeat(i % 60), "Artista;" + (i % 97), "Álbum ção", "Rock", 1 + i));
+        }
+        storage.salvar(lista);
+
+        List<Musica> carregadas = storage.carregar();
+        assertEquals(lista.size(), carregadas.size());
+        for (int i = 0; i < lista.size(); i++) {
+            assertEquals(lista.get(i).getId(), carregadas.get(i).getId(), "Ordem divergente na posição " + i);
+            assertEquals(lista.get(i).getTitulo(), carregadas.get(i).getTitulo());
+            assertEquals(lista.get(i).getArtista(), carregadas.get(i).getArtista());
+        }
+    }
+
+
+    @Test
+    void deveSalvarECarregarCatalogoBinario() {
+        FileStorage binario = new FileStorage(tempDir.resolve("musicas.mbc"));
+        Musica m1 = new Musica("Águas de Março", "Elis;Tom", "Elis & Tom", "MPB", 212);
+        Musica m2 = new Musica("Linha\nDupla", "Vários", "", "Rock", 1);
+        binario.salvar(Arrays.asList(m1, m2));
+
+        List<Musica> lista = binario.carregar();
+        assertEquals(2, lista.size());
+        assertEquals(m1.getId(), lista.get(0).getId());
+        assertEquals("Elis;Tom", lista.get(0).getArtista());
+        assertEquals(212, lista.get(0).getDuracaoSegundos());
+        assertEquals("Linha\nDupla", lista.get(1).getTitulo());
+        assertEquals("", lista.get(1).getAlbum());
+    }
+
+    @Test
+    void catalogoBinarioDeveDecodificarSobDemanda() throws IOException {
+        Path bin = tempDir.resolve("lazy.mbc");
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) lista.add(new Musica("Faixa " + i, "Artista " + i, "Álbum", "Rock", i + 1));
+        CatalogoBinario.gravar(bin, lista);
+
+        CatalogoBinario catalogo = CatalogoBinario.abrir(bin);
+        assertEquals(3000, catalogo.tamanho());
+        assertEquals(lista.get(2999).getId(), catalogo.id(2999), "ID deve ser lido sem decodificar as strings.");
+        assertEquals(1235, catalogo.duracao(1234));
+        assertEquals("Artista 1500", catalogo.musica(1500).getArtista());
+    }
+
+    @Test
+    void conversaoCsvBinarioDeveSerSemPerdas() throws IOException {
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lista.add(new Musica("Faixa " + i + " ;\\", "Artista\n" + (i % 7), "Álbum ção", "Gênero", 60 + i));
+        }
+        storage.salvar(lista);
+
+        Path bin = tempDir.resolve("musicas.mbc");
+        Path volta = tempDir.resolve("volta.csv");
+        assertEquals(500, ConversorCatalogo.csvParaBinario(arquivo, bin));
+        assertEquals(500, ConversorCatalogo.binarioParaCsv(bin, volta));
+
+        assertEquals(Files.readAllLines(arquivo), Files.readAllLines(volta), "Ida e volta deve reproduzir o CSV original.");
+    }
+
+
+    // =========================================================
+    // ✅ Testes de Gravação Atômica
+    // =========================================================
+
+    @Test
+    void salvarDeveSubstituirArquivoSemDeixarTemporario() throws IOException {
+        storage.salvar(List.of(new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183)));
+        storage.salvar(List.of(new Musica("Creep", "Radiohead", "Pablo Honey", "Rock", 238)));
+
+        assertFalse(Files.exists(tempDir.resolve("musicas.csv.tmp")), "O temporário deve ser renomeado sobre o original.");
+        List<Musica> lista = storage.carregar();
+        assertEquals(1, lista.size());
+        assertEquals("Creep", lista.get(0).getTitulo());
+    }
+
+    @Test
+    void salvarDeveCriarDiretorioInexistente() {
+        FileStorage aninhado = new FileStorage(tempDir.resolve("a").resolve("b").resolve("musicas.csv"));
+        aninhado.salvar(List.of(new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183)));
+        assertEquals(1, aninhado.carregar().size());
+    }
+
+    @Test
+    void salvamentosConcorrentesDevemTerminarComUmSnapshotCompleto() throws Exception {
+        List<List<Musica>> versoes = new ArrayList<>();
+        for (int v = 0; v < 8; v++) {
+            List<Musica> versao = new ArrayList<>();
+            for (int i = 0; i < 200 + v; i++) versao.add(new Musica("Faixa " + i, "Versão " + v, "Álbum", "Rock", 1 + i));
+            versoes.add(versao);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (List<Musica> versao : versoes) futuros.add(pool.submit(() -> storage.salvar(versao)));
+        for (Future<?> f : futuros) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        List<Musica> carregadas = storage.carregar();
+        String artista = carregadas.get(0).getArtista();
+        int v = Integer.parseInt(artista.substring("Versão ".length()));
+        assertEquals(versoes.get(v).size(), carregadas.size(), "O arquivo deve conter exatamente uma versão completa.");
+        assertTrue(carregadas.stream().allMatch(m -> m.getArtista().equals(artista)), "Versões não podem se misturar.");
+    }
+
+
+    // =========================================================
+    // ✅ Testes de Catálogo Segmentado
+    // =========================================================
+
+    @Test
+    void catalogoSegmentadoDevePreservarOrdemAoRecarregar() {
+        FileStorage segmentado = new FileStorage(arquivo, 8);
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 300; i++) lista.add(new Musica("Faixa " + i + ";", "Artista " + (i % 13), "Álbum", "Rock", 1 + i));
+        segmentado.salvar(lista);
+
+        assertTrue(Files.exists(tempDir.resolve("musicas.csv.manifesto")));
+        assertFalse(Files.exists(arquivo), "No modo segmentado não existe arquivo único.");
+
+        List<Musica> carregadas = new FileStorage(arquivo, 8).carregar();
+        assertEquals(lista.size(), carregadas.size());
+        for (int i = 0; i < lista.size(); i++) {
+            assertEquals(lista.get(i).getId(), carregadas.get(i).getId(), "Ordem divergente na posição " + i);
+            assertEquals(lista.get(i).getTitulo(), carregadas.get(i).getTitulo());
+        }
+    }
+
+    @Test
+    void mutacaoDeveReescreverApenasOSegmentoAfetado() throws IOException {
+        FileStorage segmentado = new FileStorage(arquivo, 8);
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 200; i++) lista.add(new Musica("Faixa " + i, "Artista", "Álbum", "Rock", 1 + i));
+        segmentado.salvar(lista);
+        List<Object> antes = identidadesDosSegmentos(8);
+
+        Musica nova = new Musica("Nova", "Artista", "Álbum", "Rock", 100);
+        segmentado.registrar(List.of(Mutacao.inclusao(nova)));
+
+        List<Object> depois = identidadesDosSegmentos(8);
+        int reescritos = 0;
+        for (int i = 0; i < 8; i++) if (!antes.get(i).equals(depois.get(i))) reescritos++;
+        assertEquals(1, reescritos, "Só o segmento da música incluída deve ser regravado.");
+
+        // salvar com o mesmo conteúdo não deve regravar nada
+        List<Musica> atual = new ArrayList<>(lista);
+        atual.add(nova);
+        segmentado.salvar(atual);
+        assertEquals(depois, identidadesDosSegmentos(8));
+
+        List<Musica> carregadas = new FileStorage(arquivo, 8).carregar();
+        assertEquals(201, carregadas.size());
+        assertEquals(nova.getId(), carregadas.get(200).getId(), "A inclusão deve ficar no fim do catálogo.");
+    }
+
+    @Test
+    void salvarDeveReescreverSoOSegmentoDaMusicaAlterada() throws IOException {
+        FileStorage segmentado = new FileStorage(arquivo, 8);
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 200; i++) lista.add(new Musica("Faixa " + i, "Artista", "Álbum", "Rock", 1 + i));
+        segmentado.salvar(lista);
+        List<Object> antes = identidadesDosSegmentos(8);
+
+        // Edição copy-on-write: a lista passa a ter outra instância com o mesmo ID
+        lista.set(42, lista.get(42).comTitulo("Faixa 42 (Ao Vivo)"));
+        segmentado.salvar(lista);
+
+        List<Object> depois = identidadesDosSegmentos(8);
+        int reescritos = 0;
+        for (int i = 0; i < 8; i++) if (!antes.get(i).equals(depois.get(i))) reescritos++;
+        assertEquals(1, reescritos, "Só o segmento da música alterada deve ser regravado.");
+        assertEquals("Faixa 42 (Ao Vivo)", new FileStorage(arquivo, 8).carregar().get(42).getTitulo());
+    }
+
+    @Test
+    void idRepetidoNaMigracaoDeveManterAUltimaOcorrencia() {
+        Musica m1 = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183);
+        Musica m2 = new Musica("Creep", "Radiohead", "Pablo Honey", "Rock", 238);
+        Musica m1Remaster = new Musica(m1.getId(), "Imagine (Remaster)", "John Lennon", "Imagine", "Rock", 184);
+        storage.salvar(Arrays.asList(m1, m2, m1Remaster));
+
+        List<Musica> lista = new FileStorage(arquivo, 4).carregar();
+        assertEquals(List.of(m2.getId(), m1.getId()), lista.stream().map(Musica::getId).toList(),
+                "A última ocorrência vence e fica na posição dela.");
+        assertEquals("Imagine (Remaster)", lista.get(1).getTitulo());
+    }
+
+    @Test
+    void catalogoSegmentadoDeveMigrarArquivoUnico() {
+        Musica m1 = new Musica("Imagine", "John Lennon", "Imagine", "Rock", 183);
+        Musica m2 = new Musica("Creep", "Radiohead", "Pablo Honey", "Rock", 238);
+        storage.salvar(Arrays.asList(m1, m2));
+
+        FileStorage segmentado = new FileStorage(arquivo, 4);
+        List<Musica> lista = segmentado.carregar();
+        assertEquals(2, lista.size());
+        segmentado.salvar(lista);
+
+        List<Musica> carregadas = new FileStorage(arquivo, 4).carregar();
+        assertEquals(m1.getId(), carregadas.get(0).getId());
+        assertEquals(m2.getId(), carregadas.get(1).getId());
+    }
+
+    /** Uma regravação atômica troca o arquivo, então a identidade (inode) do segmento muda. */
+    private List<Object> identidadesDosSegmentos(int quantidade) throws IOException {
+        List<Object> ids = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            Path seg = tempDir.resolve(String.format("musicas.csv.seg%03d", i));
+            ids.add(Files.exists(seg) ? Files.readAttributes(seg, BasicFileAttributes.class).fileKey() : "ausente");
+        }
+        return ids;
+    }
+
+
+    @Test
+    void catalogoBinarioDeveGravarArtistaAlbumEGeneroNoDicionario() throws IOException {
+        Path bin = tempDir.resolve("dicionario.mbc");
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            lista.add(new Musica("Faixa " + i, "Artista " + (i % 10), "Álbum " + (i % 20), i % 2 == 0 ? "Rock" : "Pop", 1 + i));
+        }
+        CatalogoBinario.gravar(bin, lista);
+
+        CatalogoBinario catalogo = CatalogoBinario.abrir(bin);
+        assertEquals(10 + 20 + 2, catalogo.tamanhoDicionario(), "Cada valor distinto deve aparecer uma única vez.");
+        assertSame(catalogo.musica(3).getArtista(), catalogo.musica(13).getArtista(), "Músicas devem compartilhar o valor decodificado.");
+        assertEquals("Álbum 7", catalogo.musica(7).getAlbum());
+        assertEquals("Pop", catalogo.musica(7).getGenero());
+    }
+
+    @Test
+    void catalogoBinarioComCodigoInvalidoDeveFalharAoAbrir() throws IOException {
+        Path bin = tempDir.resolve("corrompido.mbc");
+        List<Musica> lista = new ArrayList<>();
+        for (int i = 0; i < 10; i++) lista.add(new Musica("Faixa " + i, "Artista", "Álbum", "Rock", 1 + i));
+        CatalogoBinario.gravar(bin, lista);
+        // Código de artista da música 5 (cabeçalho de 32 bytes, registros de 40, código no byte 28)
+        try (FileChannel canal = FileChannel.open(bin, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).putInt(0, 9999), 32 + 5 * 40 + 28);
+        }
+
+        IOException erro = assertThrows(IOException.class, () -> CatalogoBinario.ler(bin));
+        assertTrue(erro.getMessage().contains("música 5"), erro.getMessage());
+        assertThrows(IOException.class, () -> CatalogoBinario.abrir(bin));
+        assertTrue(new FileStorage(bin).carregar().isEmpty(), "O storage registra a falha e começa vazio.");
+    }
+}
@@ -7,11 +7,14 @@ import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import model.DicionarioStrings;
 import model.Musica;
 
 class MusicaTest {
@@ -46,68 +49,67 @@ class MusicaTest {
     }
 
     // =========================================================
-    // ✅ Testes de Validação dos Setters
+    // ✅ Testes de Edição (cópias) e Validação
     // =========================================================
 
     @Test
-    void devePermitirCamposValidosNosSetters() {
-        musica.setTitulo("Jealous Guy");
-        musica.setArtista("John Lennon");
-        musica.setAlbum("Imagine");
-        musica.setGenero("Rock");
-        musica.setDuracaoSegundos(250);
-
-        assertEquals("Jealous Guy", musica.getTitulo());
-        assertEquals("John Lennon", musica.getArtista());
-        assertEquals("Imagine", musica.getAlbum());
-        assertEquals("Rock", musica.getGenero());
-        assertEquals(250, musica.getDuracaoSegundos());
+    void edicaoDeveGerarCopiaComMesmoIdSemAlterarOriginal() {
+        Musica editada = musica.comTitulo("Jealous Guy")
+                .comArtista("John Lennon")
+                .comAlbum("Imagine")
+                .comGenero("Rock")
+                .comDuracaoSegundos(250);
+
+        assertEquals(musica.getId(), editada.getId(), "A cópia é a mesma música, com o mesmo ID.");
+        assertEquals("Jealous Guy", editada.getTitulo());
+        assertEquals("John Lennon", editada.getArtista());
+        assertEquals("Imagine", editada.getAlbum());
+        assertEquals("Rock", editada.getGenero());
+        assertEquals(250, editada.getDuracaoSegundos());
+        assertEquals("Imagine", musica.getTitulo(), "A instância original não muda.");
+        assertEquals(183, musica.getDuracaoSegundos());
     }
 
     @Test
     void deveRemoverEspacosEmBrancoNosCampos() {
-        musica.setTitulo("  Imagine  ");
-        musica.setArtista("  John Lennon ");
-        musica.setAlbum("  Imagine ");
-        musica.setGenero("  Rock  ");
+        Musica m = new Musica("  Imagine  ", "  John Lennon ", "  Imagine ", "  Rock  ", 183);
 
-        assertEquals("Imagine", musica.getTitulo());
-        assertEquals("John Lennon", musica.getArtista());
-        assertEquals("Imagine", musica.getAlbum());
-        assertEquals("Rock", musica.getGenero());
+        assertEquals("Imagine", m.getTitulo());
+        assertEquals("John Lennon", m.getArtista());
+        assertEquals("Imagine", m.getAlbum());
+        assertEquals("Rock", m.getGenero());
     }
 
     @Test
     void deveLancarExcecaoSeTituloForVazioOuNulo() {
         assertAll(
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setTitulo("")),
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setTitulo("  ")),
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setTitulo(null))
+            () -> assertThrows(RegraNegocioException.class, () -> musica.comTitulo("")),
+            () -> assertThrows(RegraNegocioException.class, () -> musica.comTitulo("  ")),
+            () -> assertThrows(RegraNegocioException.class, () -> new Musica(null, "John Lennon", "Imagine", "Rock", 183))
         );
     }
 
     @Test
     void deveLancarExcecaoSeArtistaForVazioOuNulo() {
         assertAll(
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setArtista("")),
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setArtista("   ")),
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setArtista(null))
+            () -> assertThrows(RegraNegocioException.class, () -> musica.comArtista("")),
+            () -> assertThrows(RegraNegocioException.class, () -> musica.comArtista("   ")),
+            () -> assertThrows(RegraNegocioException.class, () -> new Musica("Imagine", null, "Imagine", "Rock", 183))
         );
     }
 
     @Test
     void deveAceitarAlbumOuGeneroNulosESubstituirPorVazio() {
-        musica.setAlbum(null);
-        musica.setGenero(null);
-        assertEquals("", musica.getAlbum());
-        assertEquals("", musica.getGenero());
+        Musica m = new Musica("Imagine", "John Lennon", null, null, 183);
+        assertEquals("", m.getAlbum());
+        assertEquals("", m.getGenero());
     }
 
     @Test
     void deveLancarExcecaoSeDuracaoForMenorOuIgualAZero() {
         assertAll(
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setDuracaoSegundos(0)),
-            () -> assertThrows(RegraNegocioException.class, () -> musica.setDuracaoSegundos(-5))
+            () -> assertThrows(RegraNegocioException.class, () -> musica.comDuracaoSegundos(0)),
+            () -> assertThrows(RegraNegocioException.class, () -> new Musica("Imagine", "John Lennon", "Imagine", "Rock", -5))
         );
     }
 
@@ -150,4 +152,45 @@ class MusicaTest {
         assertNotEquals(musica, "String qualquer");
     }
 
+    @Test
+    void igualdadeDeveSeguirEqualsIgnoreCaseForaDoAscii() {
+        // Em minúsculas, o sigma final vira "ς" e o do meio "σ"; equalsIgnoreCase os considera iguais
+        Musica maiusculas = new Musica("ΟΔΟΣ", "Artista", "Álbum", "Rock", 200);
+        Musica minusculas = new Musica("οδοσ", "Artista", "Álbum", "Rock", 200);
+
+        assertEquals(maiusculas, minusculas);
+        assertEquals(maiusculas.hashCode(), minusculas.hashCode());
+        assertEquals(maiusculas.getChaveDuplicidade(), minusculas.getChaveDuplicidade(),
+                "A chave de duplicidade deve concordar com equals.");
+    }
+
+    @Test
+    void chaveDeDuplicidadeDeveAcompanharAsCopias() {
+        String chaveOriginal = musica.getChaveDuplicidade();
+        Musica outroGenero = musica.comGenero("Pop").comDuracaoSegundos(200);
+        assertEquals(chaveOriginal, outroGenero.getChaveDuplicidade(), "Gênero e duração não afetam a chave.");
+
+        Musica outroAlbum = musica.comAlbum("Imagine (Deluxe)");
+        assertNotEquals(chaveOriginal, outroAlbum.getChaveDuplicidade(), "Outro álbum gera outra chave.");
+        assertEquals(chaveOriginal, musica.getChaveDuplicidade());
+    }
+
+    @Test
+    void artistaAlbumEGeneroDevemSerInstanciasCanonicas() {
+        Musica outra = new Musica("Jealous Guy", new String("John Lennon"), new String(" Imagine "), new String("Rock"), 254);
+        assertSame(musica.getArtista(), outra.getArtista(), "Valores iguais devem compartilhar a mesma String.");
+        assertSame(musica.getAlbum(), outra.getAlbum(), "O valor é canonizado depois do trim.");
+        assertSame(musica.getGenero(), outra.getGenero());
+    }
+
+    @Test
+    void dicionarioDeveDevolverUmaInstanciaPorValor() {
+        String valor = "Artista " + UUID.randomUUID();
+        String primeira = new String(valor);
+
+        assertSame(primeira, DicionarioStrings.canonica(primeira), "Um valor novo vira a própria instância canônica.");
+        assertSame(primeira, DicionarioStrings.canonica(new String(valor)), "Cópias do valor devolvem a mesma instância.");
+        assertSame(primeira, new Musica("Faixa", valor, "Álbum", "Rock", 100).getArtista());
+        assertNull(DicionarioStrings.canonica(null));
+    }
 }
@@ -0,0 +1,129 @@
+package unit;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.SenhaHash;
+import model.Usuario;
+import repository.SessaoRepository;
+
+class SessaoRepositoryTest {
+
+	private final AtomicLong agora = new AtomicLong();
+	private SessaoRepository sessoes;
+	private Usuario alice, bob;
+	private int iteracoesOriginais;
+
+	@BeforeEach
+	void setup() {
+		iteracoesOriginais = SenhaHash.getIteracoes();
+		SenhaHash.definirIteracoes(SenhaHash.ITERACOES_MINIMAS);
+		sessoes = new SessaoRepository(Duration.ofMinutes(30), agora::get);
+		alice = new Usuario("Alice", "alice@example.com", "1234");
+		bob = new Usuario("Bob", "bob@example.com", "abcd");
+	}
+
+	@AfterEach
+	void fechar() {
+		sessoes.close();
+		SenhaHash.definirIteracoes(iteracoesOriginais);
+	}
+
+	private void avancar(long minutos) {
+		agora.addAndGet(TimeUnit.MINUTES.toNanos(minutos));
+	}
+
+	@Test
+	void deveValidarTokenEmitidoSemExporDadosDoUsuario() {
+		String token = sessoes.iniciar(alice);
+
+		assertSame(alice, sessoes.validar(token).orElseThrow());
+		assertFalse(token.contains("alice"), "O token deve ser opaco.");
+		assertEquals(43, token.length(), "32 bytes em Base64 sem padding.");
+		assertTrue(sessoes.validar("token-inventado").isEmpty());
+		assertTrue(sessoes.validar(null).isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> sessoes.iniciar(null));
+	}
+
+	@Test
+	void deveGerarTokensDistintosPorSessao() {
+		Set<String> tokens = new HashSet<>();
+		for (int i = 0; i < 1000; i++) tokens.add(sessoes.iniciar(alice));
+
+		assertEquals(1000, tokens.size(), "Cada login deve receber um token novo.");
+		assertEquals(1000, sessoes.quantidade());
+	}
+
+	@Test
+	void deveExpirarPorInatividadeERenovarNoUso() {
+		String ativo = sessoes.iniciar(alice);
+		String parado = sessoes.iniciar(bob);
+
+		avancar(20);
+		assertTrue(sessoes.validar(ativo).isPresent(), "O uso renova o prazo.");
+		avancar(20);
+		assertTrue(sessoes.validar(ativo).isPresent(), "Renovada há 20 minutos, ainda vale.");
+		assertTrue(sessoes.validar(parado).isEmpty(), "40 minutos sem uso: expirou.");
+		assertEquals(1, sessoes.quantidade());
+
+		avancar(30);
+		assertTrue(sessoes.validar(ativo).isEmpty(), "O prazo vence exatamente na validade.");
+		assertEquals(0, sessoes.quantidade());
+	}
+
+	@Test
+	void deveVarrerSessoesVencidasNuncaMaisConsultadas() {
+		for (int i = 0; i < 10; i++) sessoes.iniciar(alice);
+		avancar(15);
+		String recente = sessoes.iniciar(bob);
+
+		avancar(20);
+		assertEquals(10, sessoes.varrer(), "Só as abertas há mais de 30 minutos saem.");
+		assertEquals(0, sessoes.varrer());
+		assertSame(bob, sessoes.validar(recente).orElseThrow());
+	}
+
+	@Test
+	void logoutDeveInvalidarTokenNaHora() {
+		String a1 = sessoes.iniciar(alice);
+		String a2 = sessoes.iniciar(alice);
+		String b = sessoes.iniciar(bob);
+
+		assertTrue(sessoes.encerrar(a1));
+		assertFalse(sessoes.encerrar(a1), "Encerrar de novo não tem efeito.");
+		assertTrue(sessoes.validar(a1).isEmpty());
+		assertTrue(sessoes.validar(a2).isPresent(), "Outras sessões do mesmo usuário continuam.");
+
+		assertEquals(1, sessoes.encerrarTodas("ALICE@example.com"));
+		assertTrue(sessoes.validar(a2).isEmpty());
+		assertTrue(sessoes.validar(b).isPresent());
+	}
+
+	@Test
+	void encerrarTodasDeveNormalizarEmailComoOUsuario() {
+		Locale padrao = Locale.getDefault();
+		// Em turco, "I".toLowerCase() é "ı"; o email do usuário é guardado sem depender do locale
+		Locale.setDefault(Locale.forLanguageTag("tr"));
+		try {
+			Usuario ivo = new Usuario("Ivo", "ivo@example.com", "1234");
+			String token = sessoes.iniciar(ivo);
+
+			assertEquals(1, sessoes.encerrarTodas("  IVO@example.com "));
+			assertTrue(sessoes.validar(token).isEmpty());
+		} finally {
+			Locale.setDefault(padrao);
+		}
+	}
+}
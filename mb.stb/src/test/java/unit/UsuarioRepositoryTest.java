@@ -1,24 +1,41 @@
 package unit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import exception.RegraNegocioException;
+import model.SenhaHash;
 import model.Usuario;
+import persistence.UsuarioStorage;
 import repository.UsuarioRepository;
 
 class UsuarioRepositoryTest {
 
 	private UsuarioRepository repo;
 	private Usuario usuarioA, usuarioB;
+	private int iteracoesOriginais;
 
 	@BeforeEach
 	void setup() {
+		iteracoesOriginais = SenhaHash.getIteracoes();
+		SenhaHash.definirIteracoes(SenhaHash.ITERACOES_MINIMAS);
 		repo = new UsuarioRepository();
 		// Garante que o repositório esteja vazio antes de cada teste unitário,
 		// limpando o usuário padrão (E2E) adicionado no construtor.
@@ -28,6 +45,11 @@ class UsuarioRepositoryTest {
 		usuarioB = new Usuario("Bob", "bob@example.com", "abcd");
 	}
 
+	@AfterEach
+	void restaurarCusto() {
+		SenhaHash.definirIteracoes(iteracoesOriginais);
+	}
+
 	@Test
 	void deveCadastrarUsuarioComSucesso() {
 		boolean resultado = repo.cadastrar(usuarioA);
@@ -99,4 +121,70 @@ class UsuarioRepositoryTest {
 		var lista2 = repo.listarTodos();
 		assertNotSame(lista1, lista2, "Cada chamada deve retornar uma nova cópia imutável");
 	}
+
+	@Test
+	void cadastrosConcorrentesDevemManterUmUsuarioPorEmail() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<Boolean>> tentativas = new ArrayList<>();
+		for (int i = 0; i < 4000; i++) {
+			int n = i % 1000;
+			tentativas.add(pool.submit(() -> repo.cadastrar(new Usuario("Usuário " + n, "USER" + n + "@example.com", "1234"))));
+		}
+		int aceitos = 0;
+		for (Future<Boolean> f : tentativas) if (f.get()) aceitos++;
+		pool.shutdown();
+
+		assertEquals(1000, aceitos, "Cada email deve ser aceito uma única vez.");
+		assertEquals(1000, repo.listarTodos().size());
+		assertTrue(repo.autenticar("user999@example.com", "1234").isPresent());
+		assertTrue(repo.existePorEmail("User0@Example.com"));
+		assertFalse(repo.existePorEmail(null));
+	}
+
+	@Test
+	void autenticarAsyncDeveVerificarForaDoThreadChamador() throws Exception {
+		// A busca no storage e a verificação do hash rodam na mesma tarefa
+		CompletableFuture<Thread> verificador = new CompletableFuture<>();
+		UsuarioStorage storage = mock(UsuarioStorage.class);
+		when(storage.buscar("alice@example.com")).thenAnswer(inv -> {
+			verificador.complete(Thread.currentThread());
+			return Optional.of(usuarioA);
+		});
+		UsuarioRepository comStorage = new UsuarioRepository(storage);
+
+		Optional<Usuario> ok = comStorage.autenticarAsync("ALICE@example.com", "1234").get();
+		assertEquals("Alice", ok.orElseThrow().getNome());
+		assertNotSame(Thread.currentThread(), verificador.get(), "A verificação do hash não deve rodar no thread chamador.");
+		comStorage.close();
+
+		repo.cadastrar(usuarioA);
+		assertTrue(repo.autenticarAsync("alice@example.com", "errada").get().isEmpty());
+		assertTrue(repo.autenticarAsync("ninguem@example.com", "1234").get().isEmpty());
+		repo.close();
+	}
+
+	@Test
+	void cadastrarAsyncDeveGerarHashForaDoThreadChamador() throws Exception {
+		// O usuário chega ao storage na mesma tarefa que gerou o hash
+		CompletableFuture<Thread> executor = new CompletableFuture<>();
+		UsuarioStorage storage = mock(UsuarioStorage.class);
+		when(storage.inserirSeAusente(any())).thenAnswer(inv -> {
+			if (inv.<Usuario>getArgument(0).getEmail().equals("alice@example.com")) executor.complete(Thread.currentThread());
+			return true;
+		});
+		UsuarioRepository comStorage = new UsuarioRepository(storage);
+
+		assertTrue(comStorage.cadastrarAsync("Alice", "alice@example.com", "1234").get());
+		assertNotSame(Thread.currentThread(), executor.get(), "O hash da senha não deve ser gerado no thread chamador.");
+		comStorage.close();
+
+		assertTrue(repo.cadastrarAsync("Alice", "alice@example.com", "1234").get());
+		assertTrue(repo.autenticar("alice@example.com", "1234").isPresent());
+		assertFalse(repo.cadastrarAsync("Outra", "ALICE@example.com", "abcd").get(), "Email repetido é recusado.");
+
+		ExecutionException erro = assertThrows(ExecutionException.class,
+				() -> repo.cadastrarAsync("Bob", "bob@example.com", "abc").get());
+		assertTrue(erro.getCause() instanceof RegraNegocioException, "Senha curta falha com a exceção de validação.");
+		repo.close();
+	}
 }
@@ -0,0 +1,170 @@
+package unit;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.SenhaHash;
+import model.Usuario;
+import persistence.UsuarioStorage;
+import repository.UsuarioRepository;
+
+class UsuarioStorageTest {
+
+    private Path tempDir;
+    private Path usuarios;
+    private int iteracoesOriginais;
+
+    @BeforeEach
+    void setup() throws IOException {
+        iteracoesOriginais = SenhaHash.getIteracoes();
+        SenhaHash.definirIteracoes(SenhaHash.ITERACOES_MINIMAS);
+        tempDir = Files.createTempDirectory("usuariostorage_test_");
+        usuarios = tempDir.resolve("usuarios.dat");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        SenhaHash.definirIteracoes(iteracoesOriginais);
+        if (Files.exists(tempDir)) {
+            Files.walk(tempDir)
+                 .sorted(Comparator.reverseOrder())
+                 .forEach(path -> {
+                     try { Files.deleteIfExists(path); } catch (IOException ignored) {}
+                 });
+        }
+    }
+
+    @Test
+    void usuariosDevemSobreviverAoReinicioComStorage() throws IOException {
+        try (UsuarioRepository repo = new UsuarioRepository(new UsuarioStorage(usuarios))) {
+            repo.limpar();
+            for (int i = 0; i < 1500; i++) { // passa de metade da capacidade inicial duas vezes
+                assertTrue(repo.cadastrar(new Usuario("Usuário " + i, "user" + i + "@example.com", "senha" + i)));
+            }
+            assertFalse(repo.cadastrar(new Usuario("Outro", "USER7@example.com", "1234")));
+        }
+        assertFalse(new String(Files.readAllBytes(usuarios), StandardCharsets.UTF_8).contains("senha7"),
+                "O arquivo guarda só o hash das senhas.");
+
+        try (UsuarioRepository reaberto = new UsuarioRepository(new UsuarioStorage(usuarios))) {
+            assertTrue(reaberto.autenticar("user1499@example.com", "senha1499").isPresent());
+            assertTrue(reaberto.autenticar("user3@example.com", "errada").isEmpty());
+            List<Usuario> todos = reaberto.listarTodos();
+            assertEquals(1501, todos.size(), "1500 cadastrados mais o usuário padrão recriado após limpar().");
+            assertEquals("user0@example.com", todos.get(0).getEmail(), "Ordem de cadastro preservada.");
+        }
+    }
+
+    @Test
+    void deveReconstruirIndiceAposQuedaEDescartarRegistroIncompleto() throws IOException {
+        UsuarioStorage semFechar = new UsuarioStorage(usuarios);
+        semFechar.inserirSeAusente(new Usuario("Alice", "alice@example.com", "1234"));
+        semFechar.inserirSeAusente(new Usuario("Bob", "bob@example.com", "abcd"));
+        // Sem close() o índice fica marcado como sujo; e um cadastro ficou pela metade
+        Files.write(usuarios, new byte[]{0, 0, 0, 40, 0, 5}, StandardOpenOption.APPEND);
+
+        UsuarioStorage reaberto = new UsuarioStorage(usuarios);
+        assertEquals("Bob", reaberto.buscar("BOB@example.com").orElseThrow().getNome());
+        assertEquals(2, reaberto.quantidade());
+        assertTrue(reaberto.inserirSeAusente(new Usuario("Carol", "carol@example.com", "xyz1")));
+        reaberto.close();
+        semFechar.close();
+
+        UsuarioStorage deNovo = new UsuarioStorage(usuarios);
+        assertEquals(List.of("alice@example.com", "bob@example.com", "carol@example.com"),
+                deNovo.listarTodos().stream().map(Usuario::getEmail).toList());
+        deNovo.close();
+    }
+
+    @Test
+    void emailsComMesmoHashDevemSerDistinguidosPeloConteudo() {
+        // "a~" e "b_" têm o mesmo String.hashCode(): caem na mesma sequência de slots
+        String primeiro = "xa~@example.com";
+        String segundo = "xb_@example.com";
+        assertEquals(primeiro.hashCode(), segundo.hashCode());
+
+        try (UsuarioStorage storage = new UsuarioStorage(usuarios)) {
+            assertTrue(storage.inserirSeAusente(new Usuario("Primeiro", primeiro, "1234")));
+            assertFalse(storage.existe(segundo));
+            assertTrue(storage.inserirSeAusente(new Usuario("Segundo", segundo, "abcd")));
+            assertFalse(storage.inserirSeAusente(new Usuario("Repetido", segundo, "abcd")));
+
+            assertEquals("Primeiro", storage.buscar(primeiro).orElseThrow().getNome());
+            assertEquals("Segundo", storage.buscar(segundo).orElseThrow().getNome());
+            assertEquals(2, storage.quantidade());
+        }
+    }
+
+    @Test
+    void arquivoComSenhasEmClaroDeveSerMigradoUmaUnicaVez() throws IOException {
+        // Formato da versão 1, de antes do hash: a senha ia em claro
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0x4D425553);
+            out.writeInt(1);
+            for (String[] r : new String[][]{{"ana@example.com", "Ana", "antiga"}, {"rui@example.com", "Rui", "1234"},
+                    {"ana@example.com", "Ana Maria", "nova1"}}) {
+                ByteArrayOutputStream corpo = new ByteArrayOutputStream();
+                try (DataOutputStream c = new DataOutputStream(corpo)) {
+                    c.writeUTF(r[0]);
+                    c.writeUTF(r[1]);
+                    c.writeUTF(r[2]);
+                }
+                out.writeInt(corpo.size());
+                out.write(corpo.toByteArray());
+            }
+        }
+        Files.write(usuarios, bytes.toByteArray());
+
+        String hash;
+        try (UsuarioStorage storage = new UsuarioStorage(usuarios)) {
+            Usuario ana = storage.buscar("ana@example.com").orElseThrow();
+            assertEquals("Ana Maria", ana.getNome(), "Vale o último registro do email.");
+            assertTrue(ana.autenticar("ana@example.com", "nova1"));
+            hash = ana.getSenha();
+            assertEquals(hash, storage.buscar("ana@example.com").orElseThrow().getSenha(),
+                    "Ler de novo não gera outro hash.");
+        }
+
+        byte[] migrado = Files.readAllBytes(usuarios);
+        assertEquals(2, ByteBuffer.wrap(migrado).getInt(4), "O arquivo passa para a versão 2.");
+        String conteudo = new String(migrado, StandardCharsets.UTF_8);
+        assertFalse(conteudo.contains("nova1") || conteudo.contains("antiga"), "Nenhuma senha em claro fica no arquivo.");
+
+        try (UsuarioStorage reaberto = new UsuarioStorage(usuarios)) {
+            assertEquals(hash, reaberto.buscar("ana@example.com").orElseThrow().getSenha());
+            assertTrue(reaberto.buscar("rui@example.com").orElseThrow().autenticar("rui@example.com", "1234"));
+            assertEquals(2, reaberto.listarTodos().size());
+        }
+    }
+
+    @Test
+    void buscaDeveNormalizarEmailComoOUsuario() {
+        Locale padrao = Locale.getDefault();
+        // Em turco, "I".toLowerCase() é "ı": a busca não pode depender do locale
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try (UsuarioStorage storage = new UsuarioStorage(usuarios)) {
+            storage.inserirSeAusente(new Usuario("Ivo", " IVO@Example.com ", "1234"));
+
+            assertEquals("Ivo", storage.buscar("  IVO@EXAMPLE.COM ").orElseThrow().getNome());
+            assertTrue(storage.existe("ivo@example.com\t"), "Espaços nas pontas não fazem parte do email.");
+        } finally {
+            Locale.setDefault(padrao);
+        }
+    }
+}
@@ -5,23 +5,35 @@ import exception.RegraNegocioException;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import model.SenhaHash;
 import model.Usuario;
 
 class UsuarioTest {
 
     private Usuario usuario;
+    private int iteracoesOriginais;
 
     @BeforeEach
     void setup() {
+        iteracoesOriginais = SenhaHash.getIteracoes();
+        SenhaHash.definirIteracoes(SenhaHash.ITERACOES_MINIMAS); // o custo real não importa aqui
         // O construtor de 3 argumentos será adicionado em Usuario.java
         usuario = new Usuario("João", "joao@example.com", "1234");
     }
 
+    @AfterEach
+    void restaurarCusto() {
+        // O custo é global: não pode vazar para as outras classes de teste
+        SenhaHash.definirIteracoes(iteracoesOriginais);
+    }
+
     // =========================================================
     // ✅ Testes de Construtor
     // =========================================================
@@ -30,7 +42,8 @@ class UsuarioTest {
     void deveCriarUsuarioComDadosValidos() {
         assertEquals("João", usuario.getNome());
         assertEquals("joao@example.com", usuario.getEmail());
-        assertEquals("1234", usuario.getSenha());
+        assertNotEquals("1234", usuario.getSenha(), "A senha não deve ser guardada em claro.");
+        assertTrue(usuario.autenticar("joao@example.com", "1234"));
     }
 
     @Test
@@ -80,7 +93,25 @@ class UsuarioTest {
     @Test
     void devePermitirAlterarSenhaValida() {
         usuario.setSenha("novaSenha");
-        assertEquals("novaSenha", usuario.getSenha());
+        assertTrue(usuario.autenticar("joao@example.com", "novaSenha"));
+        assertFalse(usuario.autenticar("joao@example.com", "1234"));
+    }
+
+    @Test
+    void hashDeveUsarSalNovoEGuardarOProprioCusto() {
+        Usuario outro = new Usuario("Outro", "outro@example.com", "1234");
+        assertNotEquals(usuario.getSenha(), outro.getSenha(), "Mesma senha, sais diferentes.");
+
+        String antigo = usuario.getSenha();
+        SenhaHash.definirIteracoes(2_000);
+        assertTrue(SenhaHash.verificar("1234", antigo), "Hashes antigos continuam válidos após mudar o custo.");
+        assertTrue(new Usuario("Novo", "novo@example.com", "1234").getSenha().contains("$2000$"));
+
+        Usuario recarregado = Usuario.comSenhaCodificada("João", "joao@example.com", antigo);
+        assertTrue(recarregado.autenticar("joao@example.com", "1234"));
+        assertThrows(IllegalArgumentException.class, () -> Usuario.comSenhaCodificada("João", "joao@example.com", "1234"),
+                "Senha em claro não é aceita como hash persistido.");
+        assertThrows(IllegalArgumentException.class, () -> SenhaHash.definirIteracoes(10));
     }
 
     @Test